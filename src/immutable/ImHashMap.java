@@ -0,0 +1,263 @@
+/**
+ * An immutable map as a hash array mapped trie
+ * (Bagwell, "Ideal Hash Trees", 2001).
+ */
+package immutable;
+
+import java.util.ArrayDeque;
+
+/**
+ * Implementation of immutable generic map using a hash array mapped trie.
+ * See ImMap for specification.
+ *
+ * Each level of the trie consumes 5 bits of the key's hash, so get, put and
+ * containsKey take O(log32 n) steps and recursion is at most 7 levels deep,
+ * whatever the size of the map. put copies only the path from the root to
+ * the changed entry; everything else is shared with the original map.
+ */
+public class ImHashMap<K, V> implements ImMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /*
+     * Rep invariant:
+     *     size >= 0, and root == null iff size == 0
+     *     no key or value is null
+     *     no key occurs twice
+     *     a Leaf or Collision reached by following children at shifts
+     *         0, 5, ..., s agrees with the path on those hash bits
+     *     a Branch has one child per bit set in its bitmap, in bit order
+     *     a Collision holds at least two keys, all with the same hash
+     *
+     * Abstraction function:
+     *     the set of bindings key->value over all Leaf and Collision
+     *     entries reachable from root
+     */
+    private final Node root;
+    private final int size;
+
+    private static abstract class Node {
+    }
+
+    private static final class Leaf extends Node {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Branch extends Node {
+        final int bitmap;
+        final Node[] children;
+
+        Branch(int bitmap, Node[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    // keys whose full hashes are equal
+    private static final class Collision extends Node {
+        final int hash;
+        final Object[] keys;
+        final Object[] values;
+
+        Collision(int hash, Object[] keys, Object[] values) {
+            this.hash = hash;
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    public ImHashMap() {
+        this(null, 0);
+    }
+
+    private ImHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public boolean containsKey(Object k) {
+        return get(k) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object k) {
+        int hash = hash(k);
+        Node node = root;
+        int shift = 0;
+        while (node != null) {
+            if (node instanceof Branch) {
+                Branch b = (Branch) node;
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((b.bitmap & bit) == 0) return null;
+                node = b.children[Integer.bitCount(b.bitmap & (bit - 1))];
+                shift += BITS;
+            } else if (node instanceof Leaf) {
+                Leaf l = (Leaf) node;
+                return l.hash == hash && l.key.equals(k) ? (V) l.value : null;
+            } else {
+                Collision c = (Collision) node;
+                if (c.hash != hash) return null;
+                for (int i = 0; i < c.keys.length; i++) {
+                    if (c.keys[i].equals(k)) return (V) c.values[i];
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public ImMap<K, V> put(K key, V value) {
+        assert key != null && value != null : "ImHashMap.put(null)";
+        boolean[] added = new boolean[1];
+        Node newRoot = put(root, 0, hash(key), key, value, added);
+        if (newRoot == root) return this;
+        return new ImHashMap<K, V>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /*
+     * Return node with key bound to value, where node sits at the given
+     * shift; sets added[0] if the key was not bound before. Returns node
+     * itself if the binding is already present.
+     */
+    private static Node put(Node node, int shift, int hash, Object key, Object value, boolean[] added) {
+        if (node == null) {
+            added[0] = true;
+            return new Leaf(hash, key, value);
+        }
+        if (node instanceof Leaf) {
+            Leaf l = (Leaf) node;
+            if (l.hash == hash && l.key.equals(key)) {
+                return l.value == value ? l : new Leaf(hash, key, value);
+            }
+            added[0] = true;
+            if (l.hash == hash) {
+                return new Collision(hash, new Object[] { l.key, key }, new Object[] { l.value, value });
+            }
+            return join(shift, l, l.hash, new Leaf(hash, key, value), hash);
+        }
+        if (node instanceof Collision) {
+            Collision c = (Collision) node;
+            if (c.hash != hash) {
+                added[0] = true;
+                return join(shift, c, c.hash, new Leaf(hash, key, value), hash);
+            }
+            int n = c.keys.length;
+            for (int i = 0; i < n; i++) {
+                if (c.keys[i].equals(key)) {
+                    if (c.values[i] == value) return c;
+                    Object[] values = c.values.clone();
+                    values[i] = value;
+                    return new Collision(hash, c.keys, values);
+                }
+            }
+            added[0] = true;
+            Object[] keys = new Object[n + 1];
+            Object[] values = new Object[n + 1];
+            System.arraycopy(c.keys, 0, keys, 0, n);
+            System.arraycopy(c.values, 0, values, 0, n);
+            keys[n] = key;
+            values[n] = value;
+            return new Collision(hash, keys, values);
+        }
+        Branch b = (Branch) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(b.bitmap & (bit - 1));
+        if ((b.bitmap & bit) != 0) {
+            Node child = b.children[index];
+            Node newChild = put(child, shift + BITS, hash, key, value, added);
+            if (newChild == child) return b;
+            Node[] children = b.children.clone();
+            children[index] = newChild;
+            return new Branch(b.bitmap, children);
+        }
+        added[0] = true;
+        Node[] children = new Node[b.children.length + 1];
+        System.arraycopy(b.children, 0, children, 0, index);
+        children[index] = new Leaf(hash, key, value);
+        System.arraycopy(b.children, index, children, index + 1, b.children.length - index);
+        return new Branch(b.bitmap | bit, children);
+    }
+
+    /*
+     * Make the smallest subtrie at the given shift holding nodes a and b,
+     * whose hashes differ.
+     */
+    private static Node join(int shift, Node a, int hashA, Node b, int hashB) {
+        // the hashes differ in some 5-bit chunk, so this loop ends before shift 35
+        Branch top = null;
+        Branch parent = null;
+        while (true) {
+            int chunkA = (hashA >>> shift) & MASK;
+            int chunkB = (hashB >>> shift) & MASK;
+            int bitA = 1 << chunkA;
+            int bitB = 1 << chunkB;
+            Branch branch;
+            if (bitA == bitB) {
+                branch = new Branch(bitA, new Node[1]);
+            } else {
+                branch = chunkA < chunkB
+                        ? new Branch(bitA | bitB, new Node[] { a, b })
+                        : new Branch(bitA | bitB, new Node[] { b, a });
+            }
+            if (parent == null) {
+                top = branch;
+            } else {
+                parent.children[0] = branch;
+            }
+            if (bitA != bitB) return top;
+            parent = branch;
+            shift += BITS;
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder("[");
+        if (root != null) {
+            // explicit stack instead of recursion; depth is at most 8 levels
+            ArrayDeque<Node> stack = new ArrayDeque<Node>();
+            stack.push(root);
+            boolean first = true;
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (node instanceof Branch) {
+                    Node[] children = ((Branch) node).children;
+                    for (int i = children.length - 1; i >= 0; i--) {
+                        stack.push(children[i]);
+                    }
+                } else if (node instanceof Leaf) {
+                    Leaf l = (Leaf) node;
+                    s.append(first ? "" : ", ").append(l.key).append("->").append(l.value);
+                    first = false;
+                } else {
+                    Collision c = (Collision) node;
+                    for (int i = 0; i < c.keys.length; i++) {
+                        s.append(first ? "" : ", ").append(c.keys[i]).append("->").append(c.values[i]);
+                        first = false;
+                    }
+                }
+            }
+        }
+        return s.append("]").toString();
+    }
+}
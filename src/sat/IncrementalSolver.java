@@ -0,0 +1,154 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sat.env.Environment;
+import sat.env.Variable;
+import sat.formula.Clause;
+import sat.formula.Formula;
+import sat.formula.Literal;
+import sat.formula.NegLiteral;
+import sat.solver.BranchingHeuristic;
+import sat.solver.IntVec;
+import sat.solver.Lit;
+import sat.solver.Solver;
+import sat.solver.VsidsHeuristic;
+
+/**
+ * A solver that keeps its state between calls, for clients that solve a
+ * sequence of closely related problems, such as the successive unrollings
+ * of bounded model checking. Clauses are added once and stay; each call
+ * of solve may assume some literals true for that call only, and keeps
+ * the clauses learned and the heuristic state of the earlier calls.
+ *
+ * Unlike SATSolver.solve, the problem is not preprocessed: variables that
+ * preprocessing eliminates could reappear in later clauses.
+ */
+public class IncrementalSolver {
+    private final Solver solver;
+    // local[id] = solver variable of the literals with registry id, or -1
+    private int[] local = new int[0];
+    // variables[v] = the variable that solver variable v stands for
+    private final List<Variable> variables = new ArrayList<Variable>();
+    // scratch buffer for clause and assumption literals
+    private final IntVec buf = new IntVec();
+    // assumptions of the last solve call
+    private Literal[] assumed = new Literal[0];
+
+    /*
+     * Rep invariant:
+     *     local[id] == v >= 0 iff variables.get(v) is the variable with registry id
+     *     solver.numVars() == variables.size()
+     */
+
+    /**
+     * Create a solver with no clauses, searching by CDCL with VSIDS.
+     */
+    public IncrementalSolver() {
+        this(Solver.Mode.CDCL, new VsidsHeuristic());
+    }
+
+    /**
+     * Create a solver with no clauses, with the given search algorithm and
+     * branching heuristic.
+     */
+    public IncrementalSolver(Solver.Mode mode, BranchingHeuristic heuristic) {
+        solver = new Solver(0);
+        solver.setMode(mode);
+        solver.setHeuristic(heuristic);
+    }
+
+    /**
+     * Add a clause, which holds for every later call of solve.
+     * @return false iff the clauses added so far are known to be
+     * unsatisfiable
+     */
+    public boolean addClause(Clause clause) {
+        buf.clear();
+        for (Literal l : clause) {
+            buf.push(toLit(l));
+        }
+        solver.ensureVars(variables.size());
+        return solver.addClause(buf.toArray());
+    }
+
+    /**
+     * Add every clause of formula, as addClause.
+     * @return false iff the clauses added so far are known to be
+     * unsatisfiable
+     */
+    public boolean addFormula(Formula formula) {
+        boolean ok = true;
+        for (Clause clause : formula.getClauses()) {
+            ok = addClause(clause);
+        }
+        return ok;
+    }
+
+    /**
+     * Solve the clauses added so far with the given literals assumed true.
+     *
+     * @return an environment, binding every variable of the clauses and
+     * assumptions, for which the clauses and assumptions evaluate to
+     * Bool.TRUE, or null if no such environment exists
+     */
+    public Environment solve(Literal... assumptions) {
+        buf.clear();
+        for (Literal l : assumptions) {
+            buf.push(toLit(l));
+        }
+        solver.ensureVars(variables.size());
+        assumed = assumptions.clone();
+        if (!solver.solve(buf.toArray())) {
+            return null;
+        }
+        Environment env = new Environment();
+        for (int v = 0; v < variables.size(); v++) {
+            if (solver.value(v) == Solver.TRUE) {
+                env = env.putTrue(variables.get(v));
+            } else if (solver.value(v) == Solver.FALSE) {
+                env = env.putFalse(variables.get(v));
+            }
+        }
+        return env;
+    }
+
+    /**
+     * @return the assumptions of the last call of solve, if it returned
+     * null, that cannot all be true together with the clauses: an empty
+     * list means the clauses alone are unsatisfiable
+     */
+    public List<Literal> getFailedAssumptions() {
+        int[] core = solver.failedAssumptions();
+        List<Literal> failed = new ArrayList<Literal>();
+        for (Literal l : assumed) {
+            int lit = toLit(l);
+            for (int c : core) {
+                if (c == lit) {
+                    failed.add(l);
+                    break;
+                }
+            }
+        }
+        return failed;
+    }
+
+    /*
+     * Returns the solver literal of l, numbering its variable if it is new.
+     */
+    private int toLit(Literal l) {
+        int id = l.getVariableId();
+        if (id >= local.length) {
+            int old = local.length;
+            local = Arrays.copyOf(local, Math.max(id + 1, 2 * old));
+            Arrays.fill(local, old, local.length, -1);
+        }
+        if (local[id] < 0) {
+            local[id] = variables.size();
+            variables.add(l.getVariable());
+        }
+        return Lit.make(local[id], l instanceof NegLiteral);
+    }
+}
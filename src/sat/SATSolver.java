@@ -1,14 +1,22 @@
 package sat;
 
-import immutable.EmptyImList;
-import immutable.ImList;
-import sat.env.Bool;
 import sat.env.Environment;
-import sat.env.Variable;
 import sat.formula.*;
+import sat.parallel.CubeAndConquer;
+import sat.parallel.PortfolioSolver;
+import sat.preprocess.Preprocessor;
+import sat.proof.Proof;
+import sat.solver.BranchingHeuristic;
+import sat.solver.ClauseArena;
+import sat.solver.LubyRestart;
+import sat.solver.RestartPolicy;
+import sat.solver.Solver;
+import sat.solver.VsidsHeuristic;
 
 /**
  * A simple DPLL SAT solver. See http://en.wikipedia.org/wiki/DPLL_algorithm
+ * A conflict-driven clause learning mode is also available, see
+ * http://en.wikipedia.org/wiki/Conflict-driven_clause_learning
  */
 public class SATSolver {
     /**
@@ -21,105 +29,206 @@ public class SATSolver {
      * null if no such environment exists.
      */
     public static Environment solve(Formula formula) {
-        Environment env = new Environment();
+        return solve(formula, Solver.Mode.DPLL);
+    }
+
+    /**
+     * Solve the problem with the given search algorithm. CDCL learns a
+     * clause from every conflict and backjumps non-chronologically, which
+     * pays off on unsatisfiable problems.
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
+     */
+    public static Environment solve(Formula formula, Solver.Mode mode) {
         if (formula.getSize() == 0) {
-            return env;
+            return new Environment();
         }
-
-        return solve(formula.getClauses(), env);
+        return solve(ClauseArena.fromFormula(formula), mode);
     }
 
     /**
-     * Takes a partial assignment of variables to values, and recursively
-     * searches for a complete satisfying assignment.
+     * Solve a problem in integer form, e.g. as read by sat.io.DimacsParser,
+     * without going through Formula. Variables are bound in the returned
+     * environment as given by arena.variable.
      *
-     * @param clauses formula in conjunctive normal form
-     * @param env     assignment of some or all variables in clauses to true or
-     *                false values.
-     * @return an environment for which all the clauses evaluate to Bool.TRUE,
-     * or null if no such environment exists.
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
      */
-    private static Environment solve(ImList<Clause> clauses, Environment env) {
-        if (clauses.isEmpty()) {
-            return env;
-        }
-        Clause smallest_clause = clauses.first();
+    public static Environment solve(ClauseArena arena, Solver.Mode mode) {
+        return solve(arena, mode, new VsidsHeuristic());
+    }
 
-        for (Clause clause : clauses) {
-            if (clause.isEmpty()) {
-                return null;
-            } else if (clause.size() < smallest_clause.size()) {
-                smallest_clause = clause;
-            }
-        }
+    /**
+     * Solve a problem in integer form with the given search algorithm and
+     * branching heuristic, e.g. BranchingHeuristic.named("dlis"). The
+     * problem is simplified first, see solve(ClauseArena, Solver.Mode,
+     * BranchingHeuristic, boolean).
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
+     */
+    public static Environment solve(ClauseArena arena, Solver.Mode mode,
+                                    BranchingHeuristic heuristic) {
+        return solve(arena, mode, heuristic, true);
+    }
 
-        Literal unit_lit = smallest_clause.chooseLiteral();
+    /**
+     * Solve a problem in integer form with the given search algorithm and
+     * branching heuristic. If preprocess is true, the problem is first
+     * simplified by sat.preprocess.Preprocessor, and the model found for the
+     * simplified problem is extended to the variables it eliminated.
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
+     */
+    public static Environment solve(ClauseArena arena, Solver.Mode mode,
+                                    BranchingHeuristic heuristic, boolean preprocess) {
+        return solve(arena, mode, heuristic, preprocess, null);
+    }
 
-        if (smallest_clause.isUnit()) {
-            // if its 1 literal only : bind it to env and its truthy value
-            env = env.put(unit_lit.getVariable(),checkPos(unit_lit));
-            // call substitute on this literal and get new simplified cnf
-            ImList<Clause> simplified_cnf = substitute(clauses, unit_lit);
-            // recursively call solve
-            return solve(simplified_cnf, env);
+    /**
+     * Solve a problem in integer form as solve(ClauseArena, Solver.Mode,
+     * BranchingHeuristic, boolean), logging the simplification and the
+     * search to proof, e.g. a sat.proof.DratWriter. If the problem is
+     * unsatisfiable, the proof ends with the empty clause and certifies
+     * that arena is.
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
+     */
+    public static Environment solve(ClauseArena arena, Solver.Mode mode,
+                                    BranchingHeuristic heuristic, boolean preprocess, Proof proof) {
+        byte[] model = solveModel(arena, mode, heuristic, preprocess, proof);
+        return model == null ? null : toEnvironment(arena, model);
+    }
 
-        } else { // there are no more unit literals
+    /**
+     * Solve a problem in integer form as solve(ClauseArena, Solver.Mode,
+     * BranchingHeuristic, boolean, Proof), restarting CDCL search when
+     * restartPolicy says so, e.g. RestartPolicy.named("glucose").
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
+     */
+    public static Environment solve(ClauseArena arena, Solver.Mode mode, BranchingHeuristic heuristic,
+                                    RestartPolicy restartPolicy, boolean preprocess, Proof proof) {
+        byte[] model = solveModel(arena, mode, heuristic, restartPolicy, preprocess, proof);
+        return model == null ? null : toEnvironment(arena, model);
+    }
 
-            if (!(unit_lit instanceof PosLiteral)) {
-                unit_lit = unit_lit.getNegation();
-            }
-            // positive literal
-            ImList<Clause> positive_cnf = substitute(clauses, unit_lit);
-            Environment positive_env = solve(positive_cnf, env);
+    /**
+     * Solve a problem in integer form as solve(ClauseArena, Solver.Mode,
+     * BranchingHeuristic, boolean, Proof), but return the model as it is,
+     * e.g. for sat.io.SatWriter or sat.check.ModelChecker.
+     *
+     * @return the values of the variables of arena, in the value codes of
+     * Solver, for which every clause of arena has a true literal, or null
+     * if there are none
+     */
+    public static byte[] solveModel(ClauseArena arena, Solver.Mode mode,
+                                    BranchingHeuristic heuristic, boolean preprocess, Proof proof) {
+        return solveModel(arena, mode, heuristic, new LubyRestart(), preprocess, proof);
+    }
 
-            if (positive_env != null) {
-                positive_env = positive_env.putTrue(unit_lit.getVariable());
-                return positive_env;
+    /**
+     * Solve a problem in integer form as solveModel(ClauseArena,
+     * Solver.Mode, BranchingHeuristic, boolean, Proof), restarting CDCL
+     * search when restartPolicy says so.
+     *
+     * @return the values of the variables of arena, in the value codes of
+     * Solver, for which every clause of arena has a true literal, or null
+     * if there are none
+     */
+    public static byte[] solveModel(ClauseArena arena, Solver.Mode mode, BranchingHeuristic heuristic,
+                                    RestartPolicy restartPolicy, boolean preprocess, Proof proof) {
+        Preprocessor preprocessor = null;
+        ClauseArena problem = arena;
+        if (preprocess) {
+            preprocessor = new Preprocessor(arena, proof);
+            if (!preprocessor.simplify()) {
+                return null;
             }
+            problem = preprocessor.toArena();
+        }
 
-            // if we cannot get a solution
-            env = env.putFalse(unit_lit.getVariable());
-            Literal negated_random_lit = unit_lit.getNegation();
-            ImList<Clause> negative_cnf = substitute(clauses, negated_random_lit);
-
-            Environment negative_env = solve(negative_cnf, env);
+        Solver solver = new Solver(arena.numVars());
+        solver.setMode(mode);
+        solver.setHeuristic(heuristic);
+        solver.setRestartPolicy(restartPolicy);
+        solver.setProof(proof);
+        solver.addClauses(problem);
+        if (!solver.solve()) {
+            return null;
+        }
 
-            if (negative_env != null) {
-                negative_env = negative_env.putFalse(negated_random_lit.getVariable());
-                return negative_env;
-            }
+        byte[] model = new byte[arena.numVars()];
+        for (int v = 0; v < model.length; v++) {
+            model[v] = solver.value(v);
         }
-        return null;
+        if (preprocessor != null) {
+            preprocessor.extendModel(model);
+        }
+        return model;
     }
 
     /**
-     * given a clause list and literal, produce a new list resulting from
-     * setting that literal to true
+     * Solve a problem in integer form with a portfolio of differently
+     * configured CDCL solvers on the given number of threads, see
+     * sat.parallel.PortfolioSolver. The problem is simplified once before
+     * the portfolio starts.
      *
-     * @param clauses , a list of clauses
-     * @param l       , a literal to set to true
-     * @return a new list of clauses resulting from setting l to true
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
      */
-    private static ImList<Clause> substitute(ImList<Clause> clauses,
-                                             Literal l) {
-        for (Clause clause : clauses) {
-            if (clause.contains(l)) {
-                clauses = clauses.remove(clause);
-            }
-            else if (clause.contains(l.getNegation())) {
-                clauses = clauses.remove(clause);
-                clauses = clauses.add(clause.reduce(l));
-            }
+    public static Environment solveParallel(ClauseArena arena, int threads) {
+        Preprocessor preprocessor = new Preprocessor(arena);
+        if (!preprocessor.simplify()) {
+            return null;
         }
-        return clauses;
+        byte[] model = new PortfolioSolver(threads).solve(preprocessor.toArena());
+        if (model == null) {
+            return null;
+        }
+        preprocessor.extendModel(model);
+        return toEnvironment(arena, model);
     }
 
-    private static Bool checkPos(Literal literal) {
-        if (literal instanceof PosLiteral) {
-            return Bool.TRUE;
+    /**
+     * Solve a problem in integer form by cube-and-conquer on the given
+     * number of threads: the problem is split by lookahead into cubes that
+     * are solved in parallel, see sat.parallel.CubeAndConquer. The problem
+     * is simplified once before splitting.
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     * null if no such environment exists.
+     */
+    public static Environment solveCubes(ClauseArena arena, int threads) {
+        Preprocessor preprocessor = new Preprocessor(arena);
+        if (!preprocessor.simplify()) {
+            return null;
         }
-        else {
-            return Bool.FALSE;
+        byte[] model = new CubeAndConquer(threads).solve(preprocessor.toArena());
+        if (model == null) {
+            return null;
+        }
+        preprocessor.extendModel(model);
+        return toEnvironment(arena, model);
+    }
+
+    /*
+     * Bind the variables of arena to their values in model, given in the
+     * value codes of Solver; unassigned variables are left unbound.
+     */
+    private static Environment toEnvironment(ClauseArena arena, byte[] model) {
+        Environment env = new Environment();
+        for (int v = 0; v < model.length; v++) {
+            if (model[v] == Solver.TRUE) {
+                env = env.putTrue(arena.variable(v));
+            } else if (model[v] == Solver.FALSE) {
+                env = env.putFalse(arena.variable(v));
+            }
         }
+        return env;
     }
 }
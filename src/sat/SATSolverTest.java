@@ -2,14 +2,55 @@ package sat;
 
 
 import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPOutputStream;
 import org.junit.Test;
 
+import immutable.ImHashMap;
+import immutable.ImMap;
 
+import sat.check.DratChecker;
+import sat.check.ModelChecker;
 import sat.env.*;
 import sat.formula.*;
+import sat.io.ByteEncoding;
+import sat.io.ClauseSnapshot;
+import sat.io.Codec;
+import sat.io.CompressedInput;
 import sat.io.FilePath;
-import sat.io.SatReader;
+import sat.io.DimacsParser;
+import sat.io.DimacsWriter;
+import sat.io.MappedDimacsLoader;
 import sat.io.SatWriter;
+import sat.parallel.ClauseExchange;
+import sat.parallel.CubeAndConquer;
+import sat.parallel.PortfolioSolver;
+import sat.preprocess.Preprocessor;
+import sat.proof.DratWriter;
+import sat.solver.BranchingHeuristic;
+import sat.solver.ClauseArena;
+import sat.solver.ClauseSharing;
+import sat.solver.DlisHeuristic;
+import sat.solver.IndexedHeap;
+import sat.solver.Lit;
+import sat.solver.LubyRestart;
+import sat.solver.RestartPolicy;
+import sat.solver.Solver;
+import sat.solver.VsidsHeuristic;
 
 
 public class SATSolverTest {
@@ -23,36 +64,85 @@ public class SATSolverTest {
 
     public static void main(String[] args) {
 //         Formula f2 = new Formula();
-        // pass in the file path as argument
+        // pass in the file path as argument: DIMACS, possibly compressed, or a ClauseSnapshot
          String filepath = FilePath.FILE_IN_SMALL_SAT;
          if (args.length != 0) {
              filepath = args[0];
          }
-         Formula f2 = SatReader.formulaReader(filepath);
+         // optionally pass the search mode (DPLL or CDCL) as second argument,
+         // the branching heuristic (vsids, dlis, static-moms, jw, random:seed) as third,
+         // a file for a DRAT proof as fourth, binary if it ends in .bdrat, or "-" for none,
+         // and the restart policy of CDCL (luby, geometric, glucose, none) as fifth
+         Solver.Mode mode = Solver.Mode.DPLL;
+         if (args.length > 1) {
+             mode = Solver.Mode.valueOf(args[1].toUpperCase());
+         }
+         BranchingHeuristic heuristic = BranchingHeuristic.named(args.length > 2 ? args[2] : "vsids");
+         RestartPolicy restarts = RestartPolicy.named(args.length > 4 ? args[4] : "luby");
+         boolean proving = args.length > 3 && !args[3].equals("-");
+         ClauseSnapshot snapshot;
+         DratWriter proof = null;
+         try {
+             snapshot = ClauseSnapshot.load(filepath);
+             if (proving) {
+                 proof = DratWriter.open(args[3], args[3].endsWith(".bdrat"));
+             }
+         } catch (IOException ex) {
+             ex.printStackTrace();
+             return;
+         }
+         ClauseArena f2 = snapshot.getArena();
          System.out.println("SAT solver starts!");
          long started = System.nanoTime();
 
          // Solve for satisfiability
-         Environment e = SATSolver.solve(f2);
+         byte[] model = SATSolver.solveModel(f2, mode, heuristic, restarts, true, proof);
+         if (proof != null) {
+             try {
+                 proof.close();
+             } catch (IOException ex) {
+                 ex.printStackTrace();
+             }
+         }
 
-         if (e == null) {
+         if (model == null) {
              System.out.println("unsatisfiable");
          } else {
              System.out.println("satisfiable");
          }
 
+         // Check the answer against the original clauses
+         if (model != null) {
+             System.out.println(ModelChecker.check(f2, model) ? "model verified" : "model check FAILED");
+             snapshot.extendModel(model);
+         } else if (proof != null) {
+             try {
+                 DratChecker checker = DratChecker.read(args[3], args[3].endsWith(".bdrat"));
+                 System.out.println(checker.check(f2) ? "proof verified, " + checker.getVerified()
+                         + " lemmas used" : "proof check FAILED");
+             } catch (IOException ex) {
+                 ex.printStackTrace();
+             }
+         }
+
          // Stop timer
          long time = System.nanoTime();
          long timeTaken = time - started;
          System.out.println("Time:" + timeTaken / 1000000.0 + "ms");
 
-         // Write env to BoolAssignment.txt
-         if (e!=null) { SatWriter.writer(e); }
+         // Write the model to BoolAssignment.txt
+         if (model != null) {
+             try {
+                 SatWriter.write(f2, model, SatWriter.Format.ASSIGNMENT, FilePath.FILE_OUT);
+             } catch (IOException ex) {
+                 ex.printStackTrace();
+             }
+         }
 
     }
 
 
-	
+    @Test
     public void testSATSolver1(){
     	// (a v b)
     	Environment e = SATSolver.solve(makeFm(makeCl(a,b))	);
@@ -61,7 +151,7 @@ public class SATSolverTest {
     			|| Bool.TRUE == e.get(b.getVariable())	);
     }
 
-
+    @Test
     public void testSATSolver2(){
     	// (~a)
         System.out.println("testing...");
@@ -71,6 +161,1058 @@ public class SATSolverTest {
  	
     }
     
+    @Test
+    public void testSampleFiles() throws IOException {
+        String[] sat = {FilePath.FILE_IN_USAT_TESTING, FilePath.FILE_IN_SMALL_SAT, FilePath.FILE_IN_SAT};
+        for (Solver.Mode mode : Solver.Mode.values()) {
+            for (String file : sat) {
+                ClauseArena arena = DimacsParser.parse(file);
+                Environment e = SATSolver.solve(arena, mode);
+                assertNotNull(file, e);
+                assertTrue(file, ModelChecker.check(arena, e));
+            }
+            assertNull(SATSolver.solve(DimacsParser.parse(FilePath.FILE_IN_USAT), mode));
+        }
+    }
+
+    @Test
+    public void testLongImplicationChain() throws InterruptedException {
+        // x1, ~x_i v x_i+1: propagation runs 100000 implications deep
+        int n = 100000;
+        ClauseArena arena = new ClauseArena(n, n, 2 * n);
+        arena.addClause(Lit.pos(0));
+        for (int i = 0; i + 1 < n; i++) {
+            arena.addClause(Lit.neg(i), Lit.pos(i + 1));
+        }
+        Formula f = arena.toFormula();
+        boolean[] ok = new boolean[1];
+        // a new thread gets the default stack size, whatever the main thread has
+        Thread t = new Thread(() -> {
+            Solver solver = new Solver(n);
+            solver.setMode(Solver.Mode.DPLL);
+            solver.addClauses(arena);
+            boolean allTrue = solver.solve();
+            for (int v = 0; v < n && allTrue; v++) {
+                allTrue = solver.value(v) == Solver.TRUE;
+            }
+            Environment e = SATSolver.solve(f, Solver.Mode.DPLL);
+            ok[0] = allTrue && e != null && ModelChecker.check(f, e);
+        });
+        t.start();
+        t.join();
+        assertTrue(ok[0]);
+    }
+
+    @Test
+    public void testCdclUnsat(){
+        // (a v b) (~a v b) (a v ~b) (~a v ~b)
+        Formula f = makeFm(makeCl(a,b), makeCl(na,b), makeCl(a,nb), makeCl(na,nb));
+        assertNull(SATSolver.solve(f, Solver.Mode.DPLL));
+        assertNull(SATSolver.solve(f, Solver.Mode.CDCL));
+    }
+
+    @Test
+    public void testCdclSat(){
+        // (a v b) (~a v c) (~b v c) (~c v ~a)
+        Environment e = SATSolver.solve(makeFm(makeCl(a,b), makeCl(na,c), makeCl(nb,c), makeCl(nc,na)),
+                Solver.Mode.CDCL);
+        assertNotNull(e);
+        assertEquals(Bool.FALSE, e.get(a.getVariable()));
+        assertEquals(Bool.TRUE, e.get(b.getVariable()));
+        assertEquals(Bool.TRUE, e.get(c.getVariable()));
+    }
+
+    @Test
+    public void testImHashMap(){
+        ImMap<String, Integer> empty = new ImHashMap<String, Integer>();
+        ImMap<String, Integer> one = empty.put("a", 1);
+        ImMap<String, Integer> two = one.put("b", 2);
+        ImMap<String, Integer> overwritten = two.put("a", 3);
+        assertEquals(Integer.valueOf(1), two.get("a"));
+        assertEquals(Integer.valueOf(3), overwritten.get("a"));
+        assertEquals(Integer.valueOf(2), overwritten.get("b"));
+        assertEquals(2, overwritten.size());
+        assertEquals(2, two.size());
+        assertEquals(1, one.size());
+        assertNull(one.get("b"));
+        assertTrue(empty.isEmpty());
+        assertNull(empty.get("a"));
+        assertFalse(one.containsKey("b"));
+        // binding a key to the value it already has shares the whole map
+        assertSame(two, two.put("b", two.get("b")));
+
+        // keys with equal hash codes share a Collision node
+        ImMap<Colliding, String> c = new ImHashMap<Colliding, String>();
+        for (int i = 0; i < 5; i++) {
+            c = c.put(new Colliding(i, 7), "v" + i);
+        }
+        ImMap<Colliding, String> beforeNear = c;
+        // hashes to 7 | 1 << 30, which agrees with 7 up to the last level of the trie
+        final int far = 7 | 1 << 30 | 1 << 14;
+        c = c.put(new Colliding(9, far), "far");
+        c = c.put(new Colliding(2, 7), "w2");
+        assertEquals(6, c.size());
+        assertEquals(5, beforeNear.size());
+        assertEquals("v2", beforeNear.get(new Colliding(2, 7)));
+        assertEquals("w2", c.get(new Colliding(2, 7)));
+        assertEquals("far", c.get(new Colliding(9, far)));
+        assertNull(beforeNear.get(new Colliding(9, far)));
+        assertNull(c.get(new Colliding(5, 7)));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i == 2 ? "w2" : "v" + i, c.get(new Colliding(i, 7)));
+        }
+    }
+
+    @Test
+    public void testLargeImHashMap(){
+        final int n = 100000;
+        ImMap<Integer, Integer> map = new ImHashMap<Integer, Integer>();
+        ImMap<Integer, Integer> earlier = map;
+        int earlierSize = 0;
+        for (int k = 0; k < n; k++) {
+            map = map.put(k, -k);
+            if (k % 1000 == 999) {
+                // the version saved 1000 puts ago is unchanged
+                assertEquals(earlierSize, earlier.size());
+                assertNull(earlier.get(k));
+                if (earlierSize > 0) assertEquals(Integer.valueOf(1 - earlierSize), earlier.get(earlierSize - 1));
+                earlier = map;
+                earlierSize = k + 1;
+            }
+        }
+        assertEquals(n, map.size());
+        ImMap<Integer, Integer> doubled = map;
+        for (int k = 0; k < n; k += 3) {
+            doubled = doubled.put(k, 2 * k);
+        }
+        assertEquals(n, doubled.size());
+        for (int k = 0; k < n; k++) {
+            assertEquals(Integer.valueOf(-k), map.get(k));
+            assertEquals(Integer.valueOf(k % 3 == 0 ? 2 * k : -k), doubled.get(k));
+        }
+        assertNull(map.get(n));
+    }
+
+    /*
+     * A key whose hash code is given, so that distinct keys can collide.
+     */
+    private static final class Colliding {
+        private final int id;
+        private final int hash;
+
+        Colliding(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id && ((Colliding) o).hash == hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return id + "#" + hash;
+        }
+    }
+
+    @Test
+    public void testEnvironmentVersions(){
+        Environment empty = new Environment();
+        Environment ab = empty.putTrue(a.getVariable()).putFalse(b.getVariable());
+        Environment flipped = ab.putTrue(b.getVariable());
+        // the older versions keep their bindings
+        assertEquals(Bool.UNDEFINED, empty.get(a.getVariable()));
+        assertEquals(Bool.FALSE, ab.get(b.getVariable()));
+        assertEquals(Bool.TRUE, flipped.get(b.getVariable()));
+        assertEquals(Bool.FALSE, ab.get(b.getVariable()));
+        assertEquals(2, ab.size());
+        assertEquals(2, flipped.size());
+        assertEquals(0, empty.size());
+
+        // two branches from one version do not see each other
+        Environment left = ab.putTrue(c.getVariable());
+        Environment right = ab.putFalse(c.getVariable());
+        assertEquals(Bool.TRUE, left.get(c.getVariable()));
+        assertEquals(Bool.FALSE, right.get(c.getVariable()));
+        assertEquals(Bool.UNDEFINED, ab.get(c.getVariable()));
+        assertEquals(Bool.TRUE, left.get(c.getVariable()));
+        assertEquals(Bool.FALSE, right.get(b.getVariable()));
+    }
+
+    @Test
+    public void testLongEnvironmentChain(){
+        // switching between the ends of a long chain of versions must not recurse
+        final int n = 6100;
+        Variable[] vars = new Variable[n];
+        Environment[] versions = new Environment[n + 1];
+        versions[0] = new Environment();
+        for (int k = 0; k < n; k++) {
+            vars[k] = new Variable("chain " + k);
+            versions[k + 1] = versions[k].put(vars[k], k % 2 == 0 ? Bool.TRUE : Bool.FALSE);
+        }
+        assertEquals(Bool.UNDEFINED, versions[0].get(vars[n - 1]));
+        assertEquals(Bool.FALSE, versions[n].get(vars[n - 1]));
+        assertEquals(Bool.UNDEFINED, versions[0].get(vars[0]));
+        for (int k = 0; k <= n; k += 61) {
+            assertEquals(k, versions[k].size());
+            if (k < n) assertEquals(Bool.UNDEFINED, versions[k].get(vars[k]));
+            if (k > 0) assertEquals(k % 2 == 1 ? Bool.TRUE : Bool.FALSE, versions[k].get(vars[k - 1]));
+        }
+    }
+
+    @Test
+    public void testLiteralRegistryThreads() throws InterruptedException {
+        // threads intern the same new names at once, each in its own order
+        final int n = 5000;
+        final int threads = 8;
+        final PosLiteral[][] made = new PosLiteral[threads][n];
+        final CountDownLatch start = new CountDownLatch(1);
+        int before = LiteralRegistry.size();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int me = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < n; i++) {
+                    int k = (i * 7919 + me * 1237) % n;
+                    made[me][k] = me % 2 == 0 ? PosLiteral.make("registry " + k)
+                            : (PosLiteral) NegLiteral.make("registry " + k).getNegation();
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(before + n, LiteralRegistry.size());
+        boolean[] seen = new boolean[n];
+        for (int k = 0; k < n; k++) {
+            PosLiteral literal = made[0][k];
+            for (int t = 1; t < threads; t++) {
+                assertSame(literal, made[t][k]);
+            }
+            assertEquals("registry " + k, literal.getVariable().getName());
+            assertSame(literal.getNegation(), NegLiteral.make("registry " + k));
+            assertSame(literal, literal.getNegation().getNegation());
+            int id = literal.getVariableId();
+            assertEquals(id, literal.getNegation().getVariableId());
+            assertTrue(id >= before && id < before + n);
+            assertFalse(seen[id - before]);
+            seen[id - before] = true;
+            assertSame(literal, LiteralRegistry.byId(id));
+        }
+    }
+
+    @Test
+    public void testHeuristics(){
+        // (a v b) (~a v c) (~b v c) (~c v ~a) has the single model ~a, b, c
+        ClauseArena sat = ClauseArena.fromFormula(
+                makeFm(makeCl(a,b), makeCl(na,c), makeCl(nb,c), makeCl(nc,na)));
+        ClauseArena unsat = ClauseArena.fromFormula(
+                makeFm(makeCl(a,b), makeCl(na,b), makeCl(a,nb), makeCl(na,nb)));
+        for (String name : new String[] {"vsids", "dlis", "static-moms", "jw", "random:1"}) {
+            for (Solver.Mode mode : Solver.Mode.values()) {
+                Environment e = SATSolver.solve(sat, mode, BranchingHeuristic.named(name));
+                assertNotNull(name, e);
+                assertEquals(name, Bool.FALSE, e.get(a.getVariable()));
+                assertNull(name, SATSolver.solve(unsat, mode, BranchingHeuristic.named(name)));
+            }
+        }
+    }
+
+    @Test
+    public void testDlisAndMoms(){
+        // x2 occurs positively in five clauses that the unit x0 satisfies,
+        // negatively in three that are open; DLIS counts only open clauses
+        for (Solver.Mode mode : Solver.Mode.values()) {
+            Solver s = new Solver(17);
+            s.setMode(mode);
+            s.setHeuristic(new DlisHeuristic());
+            s.addClause(Lit.pos(0));
+            for (int i = 0; i < 5; i++) {
+                s.addClause(Lit.pos(0), Lit.pos(2), Lit.pos(3 + i));
+            }
+            for (int j = 0; j < 3; j++) {
+                s.addClause(Lit.neg(2), Lit.pos(8 + 2 * j), Lit.pos(9 + 2 * j));
+            }
+            assertTrue(s.solve());
+            assertEquals(Solver.FALSE, s.value(2));
+        }
+
+        // every clause has four literals, and ~x4 is in all of them
+        for (Solver.Mode mode : Solver.Mode.values()) {
+            Solver s = new Solver(5);
+            s.setMode(mode);
+            s.setHeuristic(BranchingHeuristic.named("static-moms"));
+            s.addClause(Lit.neg(4), Lit.pos(0), Lit.pos(1), Lit.pos(2));
+            s.addClause(Lit.neg(4), Lit.pos(1), Lit.pos(2), Lit.pos(3));
+            s.addClause(Lit.neg(4), Lit.pos(0), Lit.pos(2), Lit.pos(3));
+            s.addClause(Lit.neg(4), Lit.pos(0), Lit.pos(1), Lit.pos(3));
+            assertTrue(s.solve());
+            // variable order and the default polarity would have made x4 true
+            assertEquals(Solver.FALSE, s.value(4));
+        }
+    }
+
+    @Test
+    public void testIndexedHeap(){
+        Random random = new Random(3);
+        final int n = 500;
+        double[] scores = new double[n];
+        IndexedHeap heap = new IndexedHeap(n, scores);
+        for (int v = 0; v < n; v++) {
+            // few distinct scores, so ties are common
+            scores[v] = random.nextInt(50);
+            heap.insert(v);
+        }
+        for (int i = 0; i < 2000; i++) {
+            int v = random.nextInt(n);
+            if (random.nextBoolean()) {
+                scores[v] += random.nextInt(20);
+                heap.increased(v);
+            } else {
+                scores[v] -= random.nextInt(20);
+                heap.decreased(v);
+            }
+        }
+        // remove some, change their scores while out, and put them back
+        for (int i = 0; i < 100; i++) {
+            int v = heap.removeMax();
+            assertFalse(heap.contains(v));
+            scores[v] = random.nextInt(50) - 25;
+            heap.increased(v);
+            if (i % 2 == 0) heap.insert(v);
+        }
+        assertEquals(n - 50, heap.size());
+        int prev = heap.removeMax();
+        while (!heap.isEmpty()) {
+            int v = heap.removeMax();
+            assertTrue(scores[prev] > scores[v] || (scores[prev] == scores[v] && prev < v));
+            prev = v;
+        }
+        for (int v = 0; v < n; v++) {
+            assertFalse(heap.contains(v));
+        }
+    }
+
+    @Test
+    public void testVsidsHeuristic(){
+        Solver solver = new Solver(5);
+        VsidsHeuristic vsids = new VsidsHeuristic(0.5, true);
+        vsids.init(solver);
+        vsids.bump(3);
+        vsids.conflict();
+        vsids.bump(1);
+        vsids.bump(3);
+        assertEquals(Lit.pos(3), vsids.pickBranchLit());
+        assertEquals(Lit.pos(1), vsids.pickBranchLit());
+        // phase saving: 3 is picked next in the polarity it had
+        vsids.unassigned(Lit.neg(3));
+        vsids.unassigned(Lit.pos(1));
+        assertEquals(Lit.neg(3), vsids.pickBranchLit());
+        assertEquals(Lit.pos(1), vsids.pickBranchLit());
+        assertEquals(Lit.pos(0), vsids.pickBranchLit());
+
+        VsidsHeuristic plain = new VsidsHeuristic(0.5, false);
+        plain.init(solver);
+        plain.bump(2);
+        assertEquals(Lit.pos(2), plain.pickBranchLit());
+        plain.unassigned(Lit.neg(2));
+        assertEquals(Lit.pos(2), plain.pickBranchLit());
+
+        // the increment doubles per conflict, far past the largest double, so
+        // only rescaling keeps the activities finite and in order
+        VsidsHeuristic growing = new VsidsHeuristic(0.5, true);
+        growing.init(new Solver(3));
+        for (int i = 0; i < 2000; i++) {
+            growing.bump(2);
+            growing.conflict();
+        }
+        growing.bump(0);
+        growing.conflict();
+        growing.bump(1);
+        // 2 has the sum of all earlier increments, less than either later one
+        assertEquals(Lit.pos(1), growing.pickBranchLit());
+        assertEquals(Lit.pos(0), growing.pickBranchLit());
+        assertEquals(Lit.pos(2), growing.pickBranchLit());
+    }
+
+    @Test
+    public void testLubySequence(){
+        long[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], LubyRestart.luby(i + 1));
+        }
+    }
+
+    @Test
+    public void testRestartPolicies(){
+        for (String name : new String[] {"luby", "geometric", "glucose", "none"}) {
+            Solver s = new Solver(42);
+            s.setMode(Solver.Mode.CDCL);
+            s.setRestartPolicy(RestartPolicy.named(name));
+            s.addClauses(pigeonhole(7, 6));
+            assertFalse(s.solve());
+            assertEquals(name, name.equals("none"), s.getRestarts() == 0);
+        }
+
+        // SATSolver passes the policy on to its solver
+        final RestartPolicy luby = RestartPolicy.named("luby");
+        final int[] restarted = new int[1];
+        RestartPolicy counting = new RestartPolicy() {
+            public void conflict(int lbd) {
+                luby.conflict(lbd);
+            }
+
+            public boolean shouldRestart() {
+                return luby.shouldRestart();
+            }
+
+            public void restarted() {
+                restarted[0]++;
+                luby.restarted();
+            }
+        };
+        assertNull(SATSolver.solveModel(pigeonhole(7, 6), Solver.Mode.CDCL, new VsidsHeuristic(),
+                counting, false, null));
+        assertTrue(restarted[0] > 0);
+    }
+
+    @Test
+    public void testLearntReduction(){
+        // 8 pigeons in 7 holes needs enough conflicts to reduce learned clauses
+        Solver s = new Solver(8 * 7);
+        s.setMode(Solver.Mode.CDCL);
+        s.addClauses(pigeonhole(8, 7));
+        assertFalse(s.solve());
+        assertTrue(s.getReductions() > 0);
+        assertTrue(s.getDeletedClauses() > 0);
+    }
+
+    @Test
+    public void testPreprocessorModel(){
+        // (~x0 v x1) (~x1 v x2) (~x2 v x3) (x0 v x3) (x0 v x1 v x2): an implication chain that preprocessing collapses
+        ClauseArena arena = new ClauseArena();
+        arena.addClause(Lit.neg(0), Lit.pos(1));
+        arena.addClause(Lit.neg(1), Lit.pos(2));
+        arena.addClause(Lit.neg(2), Lit.pos(3));
+        arena.addClause(Lit.pos(0), Lit.pos(3));
+        arena.addClause(Lit.pos(0), Lit.pos(1), Lit.pos(2));
+        Preprocessor pre = new Preprocessor(arena);
+        assertTrue(pre.simplify());
+        assertTrue(pre.getEliminated() + pre.getPureLiterals() > 0);
+        ClauseArena simplified = pre.toArena();
+        Solver s = new Solver(arena.numVars());
+        s.addClauses(simplified);
+        assertTrue(s.solve());
+        byte[] model = new byte[arena.numVars()];
+        for (int v = 0; v < model.length; v++) {
+            model[v] = s.value(v);
+        }
+        pre.extendModel(model);
+        for (int i = 0; i < arena.numClauses(); i++) {
+            boolean satisfied = false;
+            for (int l : arena.clause(i)) {
+                satisfied |= model[Lit.var(l)] == (Lit.isNeg(l) ? Solver.FALSE : Solver.TRUE);
+            }
+            assertTrue("clause " + i, satisfied);
+        }
+    }
+
+    @Test
+    public void testProbingAndEquivalences(){
+        // (~x0 v x1) (~x1 v x0) make x0, x1 equivalent; (~x2 v x3) (~x2 v ~x3) make x2 a failed literal
+        ClauseArena arena = new ClauseArena();
+        arena.addClause(Lit.neg(0), Lit.pos(1));
+        arena.addClause(Lit.neg(1), Lit.pos(0));
+        arena.addClause(Lit.neg(2), Lit.pos(3));
+        arena.addClause(Lit.neg(2), Lit.neg(3));
+        arena.addClause(Lit.pos(1), Lit.pos(2), Lit.pos(4));
+        arena.addClause(Lit.neg(0), Lit.pos(2), Lit.neg(4));
+        Preprocessor pre = new Preprocessor(arena);
+        assertTrue(pre.simplify());
+        assertEquals(1, pre.getEquivalences());
+        assertEquals(1, pre.getFailedLiterals());
+        Environment e = SATSolver.solve(arena, Solver.Mode.CDCL, BranchingHeuristic.named("vsids"));
+        assertNotNull(e);
+        assertEquals(Bool.FALSE, e.get(arena.variable(2)));
+        assertEquals(e.get(arena.variable(0)), e.get(arena.variable(1)));
+    }
+
+    @Test
+    public void testPureLiteralsDuringSearch(){
+        // (x0 v x1) (x0 v x2) (~x1 v ~x2): x0 is pure, then so are ~x1 and ~x2,
+        // and once one of them is assigned no clause is left to branch on
+        for (Solver.Mode mode : Solver.Mode.values()) {
+            Solver s = new Solver(3);
+            s.setMode(mode);
+            s.setPureLiterals(true);
+            s.addClause(Lit.pos(0), Lit.pos(1));
+            s.addClause(Lit.pos(0), Lit.pos(2));
+            s.addClause(Lit.neg(1), Lit.neg(2));
+            assertTrue(s.solve());
+            assertEquals(Solver.TRUE, s.value(0));
+            assertEquals(2, s.getPureAssignments());
+        }
+    }
+
+    @Test
+    public void testPureLiteralsAfterBackjump(){
+        // x0 occurs only in (x0 v ~x1), so it is pure throughout; the rest is
+        // random 3-SAT that needs conflicts. Restarts undo the pure assignment
+        // of x0, and the heuristic would decide ~x0 first, so x0 ends up true
+        // only if it is assigned again as a pure literal after each backjump
+        Random random = new Random(11);
+        int satisfiable = 0;
+        for (int round = 0; round < 5; round++) {
+            Solver s = new Solver(101);
+            s.setMode(Solver.Mode.CDCL);
+            s.setPureLiterals(true);
+            s.setHeuristic(new VsidsHeuristic(0.95, false, true, null));
+            s.setRestartPolicy(new LubyRestart(1));
+            s.addClause(Lit.pos(0), Lit.neg(1));
+            for (int i = 0; i < 380; i++) {
+                s.addClause(Lit.make(1 + random.nextInt(100), random.nextBoolean()),
+                        Lit.make(1 + random.nextInt(100), random.nextBoolean()),
+                        Lit.make(1 + random.nextInt(100), random.nextBoolean()));
+            }
+            if (!s.solve()) continue;
+            satisfiable++;
+            assertTrue(s.getRestarts() > 0);
+            assertEquals(Solver.TRUE, s.value(0));
+        }
+        assertTrue(satisfiable > 0);
+    }
+
+    @Test
+    public void testPortfolio(){
+        PortfolioSolver portfolio = new PortfolioSolver(5);
+        assertNull(portfolio.solve(pigeonhole(6, 5)));
+        assertNotNull(portfolio.getWinner());
+        // (a v b) (~a v c) (~b v c) (~c v ~a) has the single model ~a, b, c
+        Environment e = SATSolver.solveParallel(ClauseArena.fromFormula(
+                makeFm(makeCl(a,b), makeCl(na,c), makeCl(nb,c), makeCl(nc,na))), 3);
+        assertNotNull(e);
+        assertEquals(Bool.FALSE, e.get(a.getVariable()));
+        assertEquals(Bool.TRUE, e.get(b.getVariable()));
+        assertEquals(Bool.TRUE, e.get(c.getVariable()));
+    }
+
+    @Test
+    public void testClauseExchange(){
+        // clauses of size <= 2 or LBD <= 1 are shared
+        ClauseExchange exchange = new ClauseExchange(4, 2, 1);
+        ClauseSharing first = exchange.connect(0);
+        ClauseSharing second = exchange.connect(1);
+        first.exportClause(new int[] {Lit.pos(0), Lit.neg(1), 99}, 2, 2);
+        first.exportClause(new int[] {Lit.pos(0), Lit.pos(1), Lit.pos(2)}, 3, 3);
+        assertEquals(1, exchange.getExported());
+
+        Solver own = new Solver(3);
+        first.importClauses(own);
+        assertEquals(0, own.numLearnts());
+        Solver other = new Solver(3);
+        second.importClauses(other);
+        assertEquals(1, other.numLearnts());
+        second.importClauses(other);
+        assertEquals(1, exchange.getImported());
+    }
+
+    @Test
+    public void testCubeAndConquer(){
+        CubeAndConquer cubes = new CubeAndConquer(2);
+        cubes.setDepth(3);
+        assertNull(cubes.solve(pigeonhole(6, 5)));
+        assertTrue(cubes.getCubes() + cubes.getRefuted() > 1);
+        // (a v b) (~a v c) (~b v c) (~c v ~a) has the single model ~a, b, c
+        Environment e = SATSolver.solveCubes(ClauseArena.fromFormula(
+                makeFm(makeCl(a,b), makeCl(na,c), makeCl(nb,c), makeCl(nc,na))), 2);
+        assertNotNull(e);
+        assertEquals(Bool.FALSE, e.get(a.getVariable()));
+        assertEquals(Bool.TRUE, e.get(b.getVariable()));
+        assertEquals(Bool.TRUE, e.get(c.getVariable()));
+    }
+
+    @Test
+    public void testIncrementalSolver(){
+        IncrementalSolver solver = new IncrementalSolver();
+        // (a v b) (~a v c)
+        solver.addClause(makeCl(a,b));
+        solver.addClause(makeCl(na,c));
+        Environment e = solver.solve(na);
+        assertNotNull(e);
+        assertEquals(Bool.TRUE, e.get(b.getVariable()));
+
+        // adding (~b v c) (~c v ~a) leaves the single model ~a, b, c
+        solver.addClause(makeCl(nb,c));
+        solver.addClause(makeCl(nc,na));
+        assertNull(solver.solve(a));
+        assertEquals(Arrays.asList(a), solver.getFailedAssumptions());
+        assertNull(solver.solve(nb, nc));
+        assertFalse(solver.getFailedAssumptions().isEmpty());
+        e = solver.solve();
+        assertNotNull(e);
+        assertEquals(Bool.FALSE, e.get(a.getVariable()));
+        assertEquals(Bool.TRUE, e.get(c.getVariable()));
+
+        // (~b) makes the clauses unsatisfiable without assumptions
+        solver.addClause(makeCl(nb));
+        assertNull(solver.solve(na));
+        assertTrue(solver.getFailedAssumptions().isEmpty());
+    }
+
+    @Test
+    public void testDratWriter() throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        DratWriter writer = new DratWriter(Channels.newChannel(text), false);
+        writer.addClause(new int[] {Lit.pos(0), Lit.neg(11)}, 0, 2);
+        writer.deleteClause(new int[] {Lit.neg(0)}, 0, 1);
+        writer.close();
+        assertEquals("1 -12 0\nd -1 0\n", text.toString("US-ASCII"));
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        writer = new DratWriter(Channels.newChannel(binary), true);
+        writer.addClause(new int[] {Lit.pos(0), Lit.neg(99)}, 0, 2);
+        writer.close();
+        // 2*100+1 = 201 takes two bytes
+        assertArrayEquals(new byte[] {'a', 2, (byte) 0xc9, 1, 0}, binary.toByteArray());
+
+        // a refutation ends with the empty clause
+        text.reset();
+        writer = new DratWriter(Channels.newChannel(text), false);
+        assertNull(SATSolver.solve(pigeonhole(5, 4), Solver.Mode.CDCL, BranchingHeuristic.named("vsids"), false, writer));
+        writer.close();
+        assertTrue(writer.getAdded() > 1);
+        assertTrue(text.toString("US-ASCII").endsWith("\n0\n"));
+    }
+
+    @Test
+    public void testCheckers() throws IOException {
+        // (a v b) (~a v b): a model and a non-model
+        Formula f = makeFm(makeCl(a,b), makeCl(na,b));
+        assertTrue(ModelChecker.check(f, new Environment().putFalse(a.getVariable()).putTrue(b.getVariable())));
+        assertFalse(ModelChecker.check(f, new Environment().putTrue(a.getVariable()).putFalse(b.getVariable())));
+        ClauseArena sat = new ClauseArena();
+        sat.addClause(Lit.pos(0), Lit.pos(1));
+        sat.addClause(Lit.neg(0), Lit.pos(1));
+        assertEquals(0, ModelChecker.falsifiedClause(sat, new byte[] {Solver.FALSE, Solver.FALSE}));
+        assertEquals(1, ModelChecker.falsifiedClause(sat, new byte[] {Solver.TRUE, Solver.UNDEF}));
+        assertEquals(-1, ModelChecker.falsifiedClause(sat, new byte[] {Solver.UNDEF, Solver.TRUE}));
+
+        // proofs recorded in memory and written in both formats all check
+        for (Solver.Mode mode : Solver.Mode.values()) {
+            DratChecker recorded = new DratChecker();
+            assertNull(SATSolver.solve(pigeonhole(5, 4), mode, BranchingHeuristic.named("vsids"), true, recorded));
+            assertTrue(recorded.check(pigeonhole(5, 4)));
+            assertTrue(recorded.getVerified() > 0);
+            for (boolean binary : new boolean[] {false, true}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                DratWriter writer = new DratWriter(Channels.newChannel(out), binary);
+                assertNull(SATSolver.solve(pigeonhole(5, 4), mode, BranchingHeuristic.named("vsids"), false, writer));
+                writer.close();
+                DratChecker read = DratChecker.read(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), binary);
+                assertTrue(read.check(pigeonhole(5, 4)));
+            }
+        }
+
+        // ~b refutes the clauses of sat but does not follow from them
+        DratChecker bogus = new DratChecker();
+        bogus.addClause(new int[] {Lit.neg(1)}, 0, 1);
+        bogus.addClause(new int[0], 0, 0);
+        assertFalse(bogus.check(sat));
+    }
+
+    @Test
+    public void testSatWriter() throws IOException {
+        ClauseArena arena = new ClauseArena();
+        arena.addClause(Lit.pos(0), Lit.neg(1));
+        arena.addClause(Lit.pos(11));
+        byte[] model = new byte[12];
+        model[0] = Solver.TRUE;
+        model[1] = Solver.FALSE;
+        model[11] = Solver.TRUE;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SatWriter.write(arena, model, SatWriter.Format.ASSIGNMENT, Channels.newChannel(out));
+        assertEquals("1:TRUE\n2:FALSE\n12:TRUE\n", out.toString("US-ASCII"));
+
+        out.reset();
+        SatWriter.write(arena, model, SatWriter.Format.COMPETITION, Channels.newChannel(out));
+        assertEquals("s SATISFIABLE\nv 1 -2 12 0\n", out.toString("US-ASCII"));
+        out.reset();
+        SatWriter.write(arena, null, SatWriter.Format.COMPETITION, Channels.newChannel(out));
+        assertEquals("s UNSATISFIABLE\n", out.toString("US-ASCII"));
+
+        // long models wrap onto several "v" lines, each a run of literals
+        model = new byte[5000];
+        Arrays.fill(model, Solver.FALSE);
+        out.reset();
+        SatWriter.write(new ClauseArena(5000, 0, 0), model, SatWriter.Format.COMPETITION, Channels.newChannel(out));
+        String[] lines = out.toString("US-ASCII").split("\n");
+        assertTrue(lines.length > 2);
+        StringBuilder listed = new StringBuilder(), expected = new StringBuilder();
+        for (int i = 1; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith("v ") && lines[i].length() <= 90);
+            listed.append(lines[i].substring(1));
+        }
+        for (int x = 1; x <= 5000; x++) {
+            expected.append(" -").append(x);
+        }
+        assertEquals(expected.append(" 0").toString(), listed.toString());
+
+        // an unsatisfiable result leaves no earlier bindings in the file
+        File file = File.createTempFile("assignment", ".txt");
+        try {
+            SatWriter.writer(new Environment().putTrue(a.getVariable()), file.getPath());
+            assertTrue(file.length() > 0);
+            SatWriter.writer(null, file.getPath());
+            assertEquals(0, file.length());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testByteEncoding(){
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        int[] xs = {0, 7, -7, 10, -100, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int x : xs) {
+            buf.clear();
+            ByteEncoding.putInt(buf, x);
+            assertEquals(Integer.toString(x), new String(buf.array(), 0, buf.position(), StandardCharsets.US_ASCII));
+            assertTrue(buf.position() <= ByteEncoding.MAX_INT_DIGITS);
+
+            buf.clear();
+            ByteEncoding.putVarint(buf, x);
+            assertEquals(ByteEncoding.varintLength(x), buf.position());
+            assertTrue(buf.position() <= ByteEncoding.MAX_VARINT_BYTES);
+            int u = 0;
+            for (int i = 0; i < buf.position(); i++) {
+                u |= (buf.get(i) & 0x7f) << (7 * i);
+                assertEquals(i < buf.position() - 1, (buf.get(i) & 0x80) != 0);
+            }
+            assertEquals(x, u);
+        }
+    }
+
+    @Test
+    public void testCompressedInput() throws IOException {
+        StringBuilder text = new StringBuilder("p cnf 300 20000\n");
+        for (int i = 0; i < 20000; i++) {
+            text.append(i % 300 + 1).append(' ').append(-(i * 7 % 300 + 1)).append(" 0\n");
+        }
+        byte[] plain = text.toString().getBytes("US-ASCII");
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+            out.write(plain);
+        }
+        ClauseArena expected = DimacsParser.parse(Channels.newChannel(new ByteArrayInputStream(plain)));
+        ClauseArena arena = DimacsParser.parse(CompressedInput.open(new ByteArrayInputStream(gz.toByteArray())));
+        assertEquals(20000, arena.numClauses());
+        assertArrayEquals(Arrays.copyOf(expected.literals(), expected.numLits()),
+                Arrays.copyOf(arena.literals(), arena.numLits()));
+
+        // files are recognized by content, not name
+        File file = File.createTempFile("compressed", ".cnf");
+        try {
+            Files.write(file.toPath(), gz.toByteArray());
+            assertEquals(20000, DimacsParser.parse(file.getPath()).numClauses());
+            assertEquals(20000, MappedDimacsLoader.load(file.getPath()).numClauses());
+
+            // a damaged stream fails instead of ending early
+            byte[] damaged = Arrays.copyOf(gz.toByteArray(), gz.size() / 2);
+            Files.write(file.toPath(), damaged);
+            try {
+                DimacsParser.parse(file.getPath());
+                fail("truncated gzip input parsed");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingCodec() throws IOException {
+        // a codec whose stream breaks with an unchecked exception partway through
+        CompressedInput.register(new Codec() {
+            public String name() {
+                return "failing";
+            }
+
+            public byte[] magic() {
+                return new byte[] {'F', 'A', 'I', 'L'};
+            }
+
+            public InputStream decompress(InputStream in) {
+                return new InputStream() {
+                    private int left = 200000;
+
+                    public int read() {
+                        if (left-- == 0) throw new IllegalStateException("codec failure");
+                        return left % 10 == 0 ? '\n' : '1';
+                    }
+                };
+            }
+        });
+        ReadableByteChannel channel = CompressedInput.open(new ByteArrayInputStream("FAIL".getBytes("US-ASCII")));
+        ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+        long total = 0;
+        try {
+            while (true) {
+                buf.clear();
+                int n = channel.read(buf);
+                assertTrue("input ended early", n >= 0);
+                total += n;
+            }
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            channel.close();
+        }
+        assertTrue(total > 0 && total <= 200000);
+    }
+
+    @Test
+    public void testClauseSnapshot() throws IOException {
+        ClauseArena arena = pigeonhole(6, 5);
+        arena.addClause(Lit.pos(1000));
+        arena.addClause();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ClauseSnapshot(arena).write(Channels.newChannel(out));
+        ClauseSnapshot back = ClauseSnapshot.read(ByteBuffer.wrap(out.toByteArray()));
+        assertFalse(back.isPreprocessed());
+        assertEquals(arena.numVars(), back.getArena().numVars());
+        assertEquals(arena.toString(), back.getArena().toString());
+
+        // DIMACS text of a snapshot parses back to the same clauses
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        DimacsWriter.write(back.getArena(), Channels.newChannel(text));
+        assertEquals(arena.toString(),
+                DimacsParser.parse(Channels.newChannel(new ByteArrayInputStream(text.toByteArray()))).toString());
+
+        // a preprocessed snapshot, from a file, solves the original problem
+        ClauseArena sat = new ClauseArena();
+        Random random = new Random(5);
+        for (int i = 0; i < 150; i++) {
+            sat.addClause(Lit.make(random.nextInt(50), random.nextBoolean()),
+                    Lit.make(random.nextInt(50), random.nextBoolean()), Lit.make(random.nextInt(50), random.nextBoolean()));
+        }
+        File file = File.createTempFile("snapshot", ".snap");
+        try {
+            ClauseSnapshot.preprocessed(sat).write(file.getPath());
+            ClauseSnapshot loaded = ClauseSnapshot.load(file.getPath());
+            assertTrue(loaded.isPreprocessed());
+            byte[] model = SATSolver.solveModel(loaded.getArena(), Solver.Mode.CDCL,
+                    BranchingHeuristic.named("vsids"), false, null);
+            assertNotNull(model);
+            loaded.extendModel(model);
+            assertTrue(ModelChecker.check(sat, model));
+
+            // damage is detected
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+            try {
+                ClauseSnapshot.read(file.getPath());
+                fail("truncated snapshot read");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws IOException {
+        ClauseArena arena = pigeonhole(4, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ClauseSnapshot(arena, new int[] {Lit.pos(0), Lit.neg(1), Lit.pos(0), 2}).write(Channels.newChannel(out));
+        byte[] good = out.toByteArray();
+        assertEquals(arena.toString(), ClauseSnapshot.read(ByteBuffer.wrap(good)).getArena().toString());
+
+        // header fields: variables, clauses, literals, clause bytes, reconstruction length
+        int[] offsets = {12, 16, 20, 24, 28, 32};
+        int[] values = {-1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int offset : offsets) {
+            for (int value : values) {
+                byte[] bad = good.clone();
+                ByteBuffer.wrap(bad).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+                assertCorrupt(bad);
+            }
+        }
+        byte[] fewVars = good.clone();
+        ByteBuffer.wrap(fewVars).order(ByteOrder.LITTLE_ENDIAN).putInt(12, 5);
+        assertCorrupt(fewVars);
+
+        // reconstruction entries that run off the start, or name unknown variables
+        out.reset();
+        new ClauseSnapshot(arena, new int[] {Lit.pos(0), Lit.pos(0), 5}).write(Channels.newChannel(out));
+        assertCorrupt(out.toByteArray());
+        out.reset();
+        new ClauseSnapshot(arena, new int[] {Lit.pos(99), Lit.pos(99), 1}).write(Channels.newChannel(out));
+        assertCorrupt(out.toByteArray());
+
+        // any damage gives an IOException or a snapshot, nothing else
+        Random random = new Random(9);
+        for (int i = 0; i < 5000; i++) {
+            byte[] bad = good.clone();
+            bad[random.nextInt(bad.length)] ^= 1 << random.nextInt(8);
+            try {
+                ClauseSnapshot.read(ByteBuffer.wrap(bad));
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private static void assertCorrupt(byte[] snapshot) {
+        try {
+            ClauseSnapshot.read(ByteBuffer.wrap(snapshot));
+            fail("corrupt snapshot read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testClauseArenaRoundTrip(){
+        // (a v ~b) (c)
+        Formula f = makeFm(makeCl(a,nb), makeCl(c));
+        ClauseArena arena = ClauseArena.fromFormula(f);
+        assertEquals(3, arena.numVars());
+        assertEquals(2, arena.numClauses());
+        assertEquals(3, arena.numLits());
+        Formula back = arena.toFormula();
+        assertEquals(2, back.getSize());
+        for (Clause cl : back.getClauses()) {
+            assertTrue(cl.equals(makeCl(a,nb)) || cl.equals(makeCl(c)));
+        }
+        // numbering starts over for each formula
+        ClauseArena again = ClauseArena.fromFormula(makeFm(makeCl(nb)));
+        assertEquals(1, again.numVars());
+        assertEquals(b.getVariable(), again.variable(0));
+        assertArrayEquals(new int[] {Lit.neg(0)}, again.clause(0));
+    }
+
+    @Test
+    public void testDimacsParserSplitInput() throws IOException {
+        // clauses sharing a line, spanning lines, and split between two feeds
+        byte[] text = "c comment\np cnf 4 3\n1 -2 0 3\n -4 0\n-1 0".getBytes("US-ASCII");
+        DimacsParser parser = new DimacsParser();
+        parser.feed(ByteBuffer.wrap(text, 0, 22));
+        parser.feed(ByteBuffer.wrap(text, 22, text.length - 22));
+        ClauseArena arena = parser.finish();
+        assertEquals(4, arena.numVars());
+        assertEquals(3, arena.numClauses());
+        assertArrayEquals(new int[] {0, 3}, arena.clause(0));
+        assertArrayEquals(new int[] {4, 7}, arena.clause(1));
+        assertArrayEquals(new int[] {1}, arena.clause(2));
+    }
+
+    @Test
+    public void testMappedLoaderChunks() throws IOException {
+        for (String file : new String[] {FilePath.FILE_IN_SAT, FilePath.FILE_IN_USAT}) {
+            ClauseArena expected = DimacsParser.parse(file);
+            for (long chunk : new long[] {1, 7, 64, 4096}) {
+                assertSameClauses(expected, MappedDimacsLoader.load(file, 4, chunk));
+            }
+        }
+
+        // a long clause, comments and a clause on two lines, cut at every byte
+        byte[] text = "p cnf 5 4\n1 2 3 -4 5 0\nc a 0 comment\n-1\n -2 0 10 0\n-5 0\n".getBytes("US-ASCII");
+        File file = File.createTempFile("chunks", ".cnf");
+        try {
+            Files.write(file.toPath(), text);
+            ClauseArena expected = DimacsParser.parse(file.getPath());
+            assertEquals(4, expected.numClauses());
+            for (int chunk = 1; chunk <= text.length; chunk++) {
+                assertSameClauses(expected, MappedDimacsLoader.load(file.getPath(), 2, chunk));
+                assertSameClauses(expected, MappedDimacsLoader.load(file.getPath(), 1, chunk));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertSameClauses(ClauseArena expected, ClauseArena actual) {
+        assertEquals(expected.numVars(), actual.numVars());
+        assertEquals(expected.numClauses(), actual.numClauses());
+        for (int i = 0; i < expected.numClauses(); i++) {
+            assertArrayEquals("clause " + i, expected.clause(i), actual.clause(i));
+        }
+    }
+
+    @Test
+    public void testDimacsParserHeader() throws IOException {
+        DimacsParser parser = new DimacsParser();
+        try {
+            parser.feed(ByteBuffer.wrap("p cnf -5 2\n1 0\n".getBytes("US-ASCII")));
+            parser.finish();
+            fail("negative variable count accepted");
+        } catch (IOException e) {
+        }
+        parser = new DimacsParser();
+        try {
+            parser.feed(ByteBuffer.wrap("p cnf 3 -2\n1 0\n".getBytes("US-ASCII")));
+            parser.finish();
+            fail("negative clause count accepted");
+        } catch (IOException e) {
+        }
+
+        // a huge clause count is only a hint, and a low one is exceeded
+        byte[] text = "p cnf 3 2000000000\n1 -2 0\n3 0\n".getBytes("US-ASCII");
+        parser = new DimacsParser();
+        parser.feed(ByteBuffer.wrap(text));
+        assertEquals(2, parser.finish().numClauses());
+        File file = File.createTempFile("header", ".cnf");
+        try {
+            Files.write(file.toPath(), text);
+            ClauseArena arena = DimacsParser.parse(file.getPath());
+            assertEquals(2, arena.numClauses());
+            assertArrayEquals(new int[] {0, 3}, arena.clause(0));
+            Files.write(file.toPath(), "p cnf 3 1\n1 0\n2 0\n-3 0\n".getBytes("US-ASCII"));
+            assertEquals(3, DimacsParser.parse(file.getPath()).numClauses());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /*
+     * The unsatisfiable pigeonhole formula for more pigeons than holes:
+     * variable p*holes+h means pigeon p sits in hole h.
+     */
+    private static ClauseArena pigeonhole(int pigeons, int holes) {
+        ClauseArena arena = new ClauseArena();
+        for (int p = 0; p < pigeons; p++) {
+            int[] some = new int[holes];
+            for (int h = 0; h < holes; h++) {
+                some[h] = Lit.pos(p * holes + h);
+            }
+            arena.addClause(some);
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p = 0; p < pigeons; p++) {
+                for (int q = p + 1; q < pigeons; q++) {
+                    arena.addClause(Lit.neg(p * holes + h), Lit.neg(q * holes + h));
+                }
+            }
+        }
+        return arena;
+    }
+
     public static Formula makeFm(Clause... e) {
         Formula f = new Formula();
         for (Clause c : e) {
@@ -0,0 +1,597 @@
+package sat.check;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import sat.proof.Proof;
+import sat.solver.ClauseArena;
+import sat.solver.IntVec;
+import sat.solver.Lit;
+
+/**
+ * Checks DRAT refutations backwards, in the manner of drat-trim. A checker
+ * is a Proof, so it can record the steps of a solve in memory; read loads
+ * the steps of a proof file instead. check then verifies that the steps
+ * refute a formula.
+ *
+ * The refutation ends at the first empty clause added, or at the end of
+ * the steps if none is. Walking back from there, a lemma is checked only
+ * if some later check used it, so lemmas that play no part in the
+ * refutation, most of what a CDCL solver learns, cost nothing. A lemma
+ * holds if unit propagation refutes its negation (RUP) or, failing that,
+ * if every resolvent on its first literal is RUP (RAT). Propagation uses
+ * two watched literals, and deletions are honored exactly: a lemma is
+ * checked against the clauses present when it was added.
+ */
+public class DratChecker implements Proof {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte PENDING = 0, ACTIVE = 1, DEAD = 2;
+
+    // recorded steps, each a header (len << 1 | 1 if deletion) then len literals
+    private final IntVec steps = new IntVec();
+    private int numSteps;
+
+    // clause database: clause c is lits[start[c] .. start[c + 1])
+    private int[] lits;
+    private int[] start;
+    private int numClauses;
+    // pivot[c] = first literal of lemma c as added, or Lit.UNDEF
+    private int[] pivot;
+    // stepClause[t] = the clause step t adds or deletes, or -1
+    private int[] stepClause;
+    private boolean[] stepDeletes;
+    // PENDING clauses are absent now but come back when a deletion is undone
+    private byte[] state;
+    private boolean[] core;
+    private int[][] watches;
+    private int[] watchCount;
+    private IntVec units;
+
+    // assignment of the current propagation
+    private byte[] vals;
+    private int[] reason;
+    private boolean[] seen;
+    private IntVec trail;
+    private int qhead;
+
+    private int numOriginal;
+    private int verified;
+    private int ignoredDeletions;
+
+    /*
+     * Rep invariant (during check):
+     *     the clauses attached to watches and units are those not PENDING
+     *     a clause of size >= 2 is on the watch lists of its first two literals,
+     *         unless it is DEAD, when it may have been dropped
+     *     vals[v] != 0 iff v is on trail; reason[v] is the clause that
+     *         implied it, or -1 for the negation of the lemma being checked
+     */
+
+    /**
+     * Create a checker with no steps yet.
+     */
+    public DratChecker() {
+    }
+
+    /**
+     * Read a DRAT proof, text or binary as written by DratWriter, from
+     * the channel until end of stream. The channel is not closed.
+     * @return a checker holding the steps of the proof
+     * @throws IOException if the channel fails or the proof is malformed
+     */
+    public static DratChecker read(ReadableByteChannel channel, boolean binary) throws IOException {
+        DratChecker checker = new DratChecker();
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        IntVec clause = new IntVec();
+        boolean deletion = false;
+        // text: in a comment, in a number; binary: in a step, bits read of a literal
+        boolean inComment = false, inNumber = false, negative = false, inStep = false;
+        int number = 0, shift = 0;
+        while (channel.read(buf) >= 0) {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                int b = buf.get() & 0xff;
+                if (binary) {
+                    if (!inStep) {
+                        if (b != 'a' && b != 'd') throw new IOException("DRAT: bad step marker " + b);
+                        deletion = b == 'd';
+                        inStep = true;
+                    } else if (shift > 28) {
+                        throw new IOException("DRAT: literal out of range");
+                    } else {
+                        number |= (b & 0x7f) << shift;
+                        shift += 7;
+                        if ((b & 0x80) != 0) continue;
+                        if (number == 0) {
+                            checker.step(clause, deletion);
+                            inStep = false;
+                        } else if (number < 2) {
+                            throw new IOException("DRAT: literal out of range");
+                        } else {
+                            clause.push(number - 2);
+                        }
+                        number = 0;
+                        shift = 0;
+                    }
+                } else if (inComment) {
+                    inComment = b != '\n';
+                } else if (b >= '0' && b <= '9') {
+                    if (number > (Integer.MAX_VALUE - 9) / 10) throw new IOException("DRAT: literal out of range");
+                    number = number * 10 + (b - '0');
+                    inNumber = true;
+                } else if (b == '-' && !inNumber && !negative) {
+                    negative = true;
+                } else if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                    if (inNumber) {
+                        if (number == 0) {
+                            checker.step(clause, deletion);
+                            deletion = false;
+                        } else {
+                            clause.push(Lit.fromDimacs(negative ? -number : number));
+                        }
+                    } else if (negative) {
+                        throw new IOException("DRAT: '-' not followed by a number");
+                    }
+                    inNumber = negative = false;
+                    number = 0;
+                } else if (b == 'd' && !inNumber && !negative && clause.isEmpty() && !deletion) {
+                    deletion = true;
+                } else if (b == 'c' && !inNumber && !negative && clause.isEmpty() && !deletion) {
+                    inComment = true;
+                } else {
+                    throw new IOException("DRAT: unexpected character '" + (char) b + "'");
+                }
+            }
+            buf.clear();
+        }
+        if (!binary && inNumber && number == 0) {
+            // the last step ends without a newline
+            checker.step(clause, deletion);
+            inNumber = negative = deletion = false;
+        }
+        if (binary ? inStep : inNumber || negative || deletion || !clause.isEmpty()) {
+            throw new IOException("DRAT: proof ends inside a step");
+        }
+        return checker;
+    }
+
+    /**
+     * Read the DRAT proof file at filePath, as read(channel, binary).
+     * @throws IOException if the file cannot be read or the proof is malformed
+     */
+    public static DratChecker read(String filePath, boolean binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return read(channel, binary);
+        }
+    }
+
+    public void addClause(int[] lits, int from, int len) {
+        record(lits, from, len, false);
+    }
+
+    public void deleteClause(int[] lits, int from, int len) {
+        record(lits, from, len, true);
+    }
+
+    /**
+     * @return number of steps recorded or read
+     */
+    public int numSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Check that the steps refute formula, whose variable v is literal
+     * variable v of the steps.
+     * @return true iff every lemma the refutation uses is RUP or RAT and
+     * the refutation ends in a conflict by unit propagation
+     */
+    public boolean check(ClauseArena formula) {
+        load(formula);
+        for (int c = 0; c < numOriginal; c++) {
+            if (start[c + 1] == start[c]) {
+                core[c] = true;
+                return true;
+            }
+        }
+        int end = forward();
+        for (int c = 0; c < numClauses; c++) {
+            if (state[c] == ACTIVE) attach(c);
+        }
+        if (!implied(-1, -1, Lit.UNDEF)) return false;
+        // undo the steps before the refutation, last first
+        for (int t = end - 1; t >= 0; t--) {
+            int c = stepClause[t];
+            if (c < 0) continue;
+            if (stepDeletes[t]) {
+                state[c] = ACTIVE;
+                attach(c);
+            } else {
+                state[c] = DEAD;
+                if (core[c]) {
+                    if (!implied(c, -1, Lit.UNDEF) && !resolventsImplied(c)) return false;
+                    verified++;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of lemmas checked by the last check, those the
+     * refutation uses
+     */
+    public int getVerified() {
+        return verified;
+    }
+
+    /**
+     * @return number of deletions of the last check that matched no clause
+     * present and were ignored
+     */
+    public int getIgnoredDeletions() {
+        return ignoredDeletions;
+    }
+
+    /**
+     * @return indices, in increasing order, of the clauses of the formula
+     * that the last successful check used: an unsatisfiable core
+     */
+    public int[] getCore() {
+        IntVec c = new IntVec();
+        for (int i = 0; i < numOriginal; i++) {
+            if (core[i]) c.push(i);
+        }
+        return c.toArray();
+    }
+
+    private void record(int[] lits, int from, int len, boolean deletion) {
+        steps.push(len << 1 | (deletion ? 1 : 0));
+        for (int k = from; k < from + len; k++) {
+            steps.push(lits[k]);
+        }
+        numSteps++;
+    }
+
+    private void step(IntVec clause, boolean deletion) {
+        int[] c = clause.toArray();
+        record(c, 0, c.length, deletion);
+        clause.clear();
+    }
+
+    /*
+     * Set up an empty database for formula and the recorded steps, then
+     * store the clauses of formula as ACTIVE.
+     */
+    private void load(ClauseArena formula) {
+        int numVars = formula.numVars();
+        int numLits = formula.numLits();
+        for (int p = 0; p < steps.size(); ) {
+            int len = steps.get(p) >>> 1;
+            for (int k = p + 1; k <= p + len; k++) {
+                numVars = Math.max(numVars, Lit.var(steps.get(k)) + 1);
+            }
+            numLits += len;
+            p += 1 + len;
+        }
+        int maxClauses = formula.numClauses() + numSteps;
+        lits = new int[numLits];
+        start = new int[maxClauses + 1];
+        pivot = new int[maxClauses];
+        state = new byte[maxClauses];
+        core = new boolean[maxClauses];
+        watches = new int[2 * numVars][];
+        watchCount = new int[2 * numVars];
+        units = new IntVec();
+        vals = new byte[numVars];
+        reason = new int[numVars];
+        seen = new boolean[numVars];
+        trail = new IntVec();
+        qhead = 0;
+        numClauses = 0;
+        verified = 0;
+        ignoredDeletions = 0;
+        int[] fl = formula.literals();
+        for (int i = 0; i < formula.numClauses(); i++) {
+            store(fl, formula.start(i), formula.clauseSize(i));
+        }
+        numOriginal = numClauses;
+    }
+
+    /*
+     * Replay the steps up to the first empty lemma, storing lemmas and
+     * matching deletions to the clauses they delete, which become PENDING.
+     * Returns the number of steps before the refutation.
+     */
+    private int forward() {
+        // clauses present, by hash of their literal set
+        Map<Integer, IntVec> present = new HashMap<Integer, IntVec>();
+        for (int c = 0; c < numOriginal; c++) {
+            index(present, c);
+        }
+        stepClause = new int[numSteps];
+        stepDeletes = new boolean[numSteps];
+        int[] sl = steps.toArray();
+        boolean[] mark = new boolean[watches.length];
+        for (int t = 0, p = 0; t < numSteps; t++) {
+            int len = sl[p] >>> 1;
+            boolean deletion = (sl[p] & 1) != 0;
+            stepDeletes[t] = deletion;
+            p++;
+            if (!deletion) {
+                int c = store(sl, p, len);
+                if (start[c + 1] == start[c]) return t;
+                index(present, c);
+                stepClause[t] = c;
+            } else {
+                stepClause[t] = unindex(present, sl, p, len, mark);
+                if (stepClause[t] < 0) ignoredDeletions++;
+                else state[stepClause[t]] = PENDING;
+            }
+            p += len;
+        }
+        return numSteps;
+    }
+
+    /*
+     * Store src[from .. from + len) without repeated literals as a new
+     * ACTIVE clause, and return it.
+     */
+    private int store(int[] src, int from, int len) {
+        int c = numClauses++;
+        int s = start[c], e = s;
+        for (int k = from; k < from + len; k++) {
+            int l = src[k];
+            boolean repeated = false;
+            for (int j = s; j < e; j++) {
+                if (lits[j] == l) {
+                    repeated = true;
+                    break;
+                }
+            }
+            if (!repeated) lits[e++] = l;
+        }
+        start[c + 1] = e;
+        pivot[c] = e > s ? lits[s] : Lit.UNDEF;
+        state[c] = ACTIVE;
+        return c;
+    }
+
+    private static int hash(int[] src, int from, int len) {
+        // order independent, so that a deletion may list the literals in any order
+        int sum = 0, xor = 0;
+        for (int k = from; k < from + len; k++) {
+            int h = src[k] * 0x9e3779b9;
+            sum += h ^ (h >>> 16);
+            xor ^= h;
+        }
+        return sum * 31 + xor;
+    }
+
+    private void index(Map<Integer, IntVec> present, int c) {
+        int h = hash(lits, start[c], start[c + 1] - start[c]);
+        IntVec ids = present.get(h);
+        if (ids == null) {
+            ids = new IntVec(1);
+            present.put(h, ids);
+        }
+        ids.push(c);
+    }
+
+    /*
+     * Remove from present and return a clause with the literal set of
+     * src[from .. from + len), or return -1 if there is none.
+     */
+    private int unindex(Map<Integer, IntVec> present, int[] src, int from, int len, boolean[] mark) {
+        IntVec ids = present.get(hash(src, from, len));
+        if (ids == null) return -1;
+        int distinct = 0;
+        for (int k = from; k < from + len; k++) {
+            if (!mark[src[k]]) distinct++;
+            mark[src[k]] = true;
+        }
+        int found = -1;
+        for (int i = ids.size() - 1; i >= 0 && found < 0; i--) {
+            int c = ids.get(i);
+            if (start[c + 1] - start[c] != distinct) continue;
+            boolean same = true;
+            for (int k = start[c]; k < start[c + 1] && same; k++) {
+                same = mark[lits[k]];
+            }
+            if (same) {
+                found = c;
+                ids.set(i, ids.last());
+                ids.pop();
+            }
+        }
+        for (int k = from; k < from + len; k++) {
+            mark[src[k]] = false;
+        }
+        return found;
+    }
+
+    private void attach(int c) {
+        int s = start[c];
+        int len = start[c + 1] - s;
+        if (len == 1) {
+            units.push(c);
+        } else if (len > 1) {
+            watch(lits[s], c);
+            watch(lits[s + 1], c);
+        }
+    }
+
+    private void watch(int l, int c) {
+        int[] ws = watches[l];
+        if (ws == null) {
+            ws = watches[l] = new int[4];
+        } else if (watchCount[l] == ws.length) {
+            ws = watches[l] = Arrays.copyOf(ws, ws.length << 1);
+        }
+        ws[watchCount[l]++] = c;
+    }
+
+    private int value(int l) {
+        int v = vals[Lit.var(l)];
+        return Lit.isNeg(l) ? -v : v;
+    }
+
+    private void assign(int l, int from) {
+        int v = Lit.var(l);
+        vals[v] = (byte) (Lit.isNeg(l) ? -1 : 1);
+        reason[v] = from;
+        trail.push(l);
+    }
+
+    /*
+     * Decide whether unit propagation over the present clauses refutes the
+     * negation of lemma (none if -1), together with that of every literal
+     * of clause other (none if -1) but the negation of p. If it does, mark
+     * the clauses the conflict depends on as core.
+     */
+    private boolean implied(int lemma, int other, int p) {
+        boolean refuted = negate(lemma, Lit.UNDEF) || negate(other, Lit.not(p));
+        if (!refuted) {
+            int conflict = -1;
+            for (int i = 0; i < units.size() && conflict < 0; i++) {
+                int u = units.get(i);
+                if (state[u] != ACTIVE) continue;
+                int l = lits[start[u]];
+                if (value(l) < 0) conflict = u;
+                else if (value(l) == 0) assign(l, u);
+            }
+            if (conflict < 0) conflict = propagate();
+            if (conflict >= 0) {
+                markCore(conflict);
+                refuted = true;
+            }
+        }
+        for (int i = 0; i < trail.size(); i++) {
+            vals[Lit.var(trail.get(i))] = 0;
+        }
+        trail.clear();
+        qhead = 0;
+        return refuted;
+    }
+
+    /*
+     * Assign false to every literal of clause c but skip; return true iff
+     * one of them was already true, so that the clause being checked is a
+     * tautology.
+     */
+    private boolean negate(int c, int skip) {
+        if (c < 0) return false;
+        for (int k = start[c]; k < start[c + 1]; k++) {
+            int l = lits[k];
+            if (l == skip) continue;
+            if (value(l) > 0) return true;
+            if (value(l) == 0) assign(Lit.not(l), -1);
+        }
+        return false;
+    }
+
+    /*
+     * Decide whether lemma is RAT on its pivot: whether every resolvent
+     * with a present clause containing the negated pivot is RUP.
+     */
+    private boolean resolventsImplied(int lemma) {
+        int p = pivot[lemma];
+        if (p == Lit.UNDEF) return false;
+        int np = Lit.not(p);
+        IntVec candidates = new IntVec();
+        for (int d = 0; d < numClauses; d++) {
+            if (state[d] != ACTIVE) continue;
+            for (int k = start[d]; k < start[d + 1]; k++) {
+                if (lits[k] == np) {
+                    if (!implied(lemma, d, p)) return false;
+                    candidates.push(d);
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            core[candidates.get(i)] = true;
+        }
+        return true;
+    }
+
+    /*
+     * Propagate the trail; return a clause all of whose literals are
+     * false, or -1 if there is none.
+     */
+    private int propagate() {
+        while (qhead < trail.size()) {
+            int fl = Lit.not(trail.get(qhead++));
+            int[] ws = watches[fl];
+            int n = watchCount[fl];
+            int i = 0, j = 0;
+            while (i < n) {
+                int c = ws[i++];
+                if (state[c] == DEAD) continue;
+                int s = start[c];
+                // make lits[s + 1] the false literal
+                if (lits[s] == fl) {
+                    lits[s] = lits[s + 1];
+                    lits[s + 1] = fl;
+                }
+                int first = lits[s];
+                if (value(first) > 0) {
+                    ws[j++] = c;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = s + 2; k < start[c + 1]; k++) {
+                    if (value(lits[k]) >= 0) {
+                        lits[s + 1] = lits[k];
+                        lits[k] = fl;
+                        watch(lits[s + 1], c);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+                ws[j++] = c;
+                if (value(first) < 0) {
+                    while (i < n) {
+                        ws[j++] = ws[i++];
+                    }
+                    watchCount[fl] = j;
+                    return c;
+                }
+                assign(first, c);
+            }
+            watchCount[fl] = j;
+        }
+        return -1;
+    }
+
+    /*
+     * Mark as core the conflict clause and the reasons of the assignments
+     * it depends on.
+     */
+    private void markCore(int conflict) {
+        core[conflict] = true;
+        for (int k = start[conflict]; k < start[conflict + 1]; k++) {
+            seen[Lit.var(lits[k])] = true;
+        }
+        for (int i = trail.size() - 1; i >= 0; i--) {
+            int l = trail.get(i);
+            int v = Lit.var(l);
+            if (!seen[v]) continue;
+            seen[v] = false;
+            int r = reason[v];
+            if (r < 0) continue;
+            core[r] = true;
+            for (int k = start[r]; k < start[r + 1]; k++) {
+                if (lits[k] != l) seen[Lit.var(lits[k])] = true;
+            }
+        }
+    }
+}
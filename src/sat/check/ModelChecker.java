@@ -0,0 +1,79 @@
+package sat.check;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.formula.Formula;
+import sat.solver.ClauseArena;
+import sat.solver.Lit;
+import sat.solver.Solver;
+
+/**
+ * Checks models against formulas in one pass over the literals of an
+ * integer clause arena, so that checking costs time linear in the size of
+ * the formula. Models are given either as an array of values in the value
+ * codes of Solver, one per variable, or as an Environment, which is read
+ * once per variable.
+ */
+public final class ModelChecker {
+    private ModelChecker() {
+    }
+
+    /**
+     * Requires: model.length >= arena.numVars()
+     * @return the index of the first clause of arena that has no literal
+     * true under model, or -1 if model satisfies every clause
+     */
+    public static int falsifiedClause(ClauseArena arena, byte[] model) {
+        int[] lits = arena.literals();
+        for (int i = 0; i < arena.numClauses(); i++) {
+            boolean satisfied = false;
+            for (int k = arena.start(i); k < arena.end(i); k++) {
+                int l = lits[k];
+                byte val = model[Lit.var(l)];
+                if (Lit.isNeg(l) ? val == Solver.FALSE : val == Solver.TRUE) {
+                    satisfied = true;
+                    break;
+                }
+            }
+            if (!satisfied) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Requires: model.length >= arena.numVars()
+     * @return true iff model satisfies every clause of arena
+     */
+    public static boolean check(ClauseArena arena, byte[] model) {
+        return falsifiedClause(arena, model) < 0;
+    }
+
+    /**
+     * @return true iff env, reading variable v of arena as arena.variable(v),
+     * satisfies every clause of arena; unbound variables satisfy no literal
+     */
+    public static boolean check(ClauseArena arena, Environment env) {
+        return check(arena, toModel(arena, env));
+    }
+
+    /**
+     * @return true iff env satisfies every clause of formula, i.e. formula
+     * evaluates to Bool.TRUE under env
+     */
+    public static boolean check(Formula formula, Environment env) {
+        return check(ClauseArena.fromFormula(formula), env);
+    }
+
+    /*
+     * Returns the values env gives the variables of arena, in the value
+     * codes of Solver.
+     */
+    private static byte[] toModel(ClauseArena arena, Environment env) {
+        byte[] model = new byte[arena.numVars()];
+        for (int v = 0; v < model.length; v++) {
+            Bool b = env.get(arena.variable(v));
+            model[v] = b == Bool.TRUE ? Solver.TRUE : b == Bool.FALSE ? Solver.FALSE : Solver.UNDEF;
+        }
+        return model;
+    }
+}
@@ -5,33 +5,80 @@
  * (c) 2008, MIT and Daniel Jackson
  */
 package sat.env;
-import immutable.ImListMap;
-import immutable.ImMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * An environment is an immutable mapping from variables to boolean values.
  * A special 3-valued Bool type is used to handle the case
  * in which a variable is to be evaluated that has no binding.
- * 
+ *
  * Typically, clients are expected to bind variables explicitly only
  * to Bool.TRUE and Bool.FALSE, and Bool.UNDEFINED is used only
  * to return a boolean value for an unbound variable. But this
  * implementation does not prevent a variable from being explicitly
  * bound to UNDEFINED.
+ *
+ * Implementation: a persistent array indexed by Variable.getId. All the
+ * environments derived from one another by put share a single byte array
+ * holding the values of the most recently used environment; every other
+ * environment is recorded as a one-entry undo log against its neighbour.
+ * get and put on the most recent environment take O(1) time, as they do
+ * when a search backtracks to an older environment and extends it.
  */
 public class Environment {
+    // encoding of the values in the shared array
+    private static final byte UNBOUND = 0;
+    private static final byte[] CODES = new byte[Bool.values().length];
+    private static final Bool[] VALUES = { null, Bool.TRUE, Bool.FALSE, Bool.UNDEFINED };
+    static {
+        CODES[Bool.TRUE.ordinal()] = 1;
+        CODES[Bool.FALSE.ordinal()] = 2;
+        CODES[Bool.UNDEFINED.ordinal()] = 3;
+    }
+
+    /*
+     * State shared by a family of environments; its monitor guards every
+     * field of Store and of the environments of the family.
+     */
+    private static final class Store {
+        byte[] values = new byte[16];
+    }
+
+    private final Store store;
+    // number of variables bound in this environment
+    private final int size;
+    /*
+     * If next == null, this environment is the one stored in store.values.
+     * Otherwise this environment equals next except that the variable with
+     * id index has the value with code value.
+     */
+    private Environment next;
+    private int index;
+    private byte value;
+
     /*
      * Rep invariant
-     *     bindings != null
+     *     store != null
+     *     following next from any environment of a family ends at the
+     *         single environment with next == null
+     *     size is the number of ids with a value other than UNBOUND
+     *
+     * Abstraction function
+     *     the mapping from VariableIds.variable(i) to VALUES[v], for each id i
+     *     whose value v in this environment (after rerooting) is not UNBOUND
      */
-    private ImMap <Variable, Bool> bindings;
 
-    private Environment(ImMap <Variable, Bool> bindings) {
-        this.bindings = bindings;
+    private Environment(Store store, int size) {
+        this.store = store;
+        this.size = size;
     }
 
     public Environment() {
-        this (new ImListMap<Variable, Bool> ());
+        this (new Store(), 0);
     }
 
     /**
@@ -39,7 +86,22 @@ public class Environment {
      * if a binding for l already exists, overwrites it
      */
     public Environment put(Variable v, Bool b) {
-        return new Environment (bindings.put (v, b));
+        int id = v.getId();
+        byte code = CODES[b.ordinal()];
+        synchronized (store) {
+            reroot();
+            if (id >= store.values.length) {
+                store.values = Arrays.copyOf(store.values, Math.max(id + 1, store.values.length << 1));
+            }
+            byte old = store.values[id];
+            if (old == code) return this;
+            Environment result = new Environment(store, old == UNBOUND ? size + 1 : size);
+            store.values[id] = code;
+            next = result;
+            index = id;
+            value = old;
+            return result;
+        }
     }
 
     /**
@@ -47,7 +109,7 @@ public class Environment {
      * if a binding for l already exists, overwrites it
      */
     public Environment putTrue(Variable v) {
-        return new Environment (bindings.put (v, Bool.TRUE));
+        return put (v, Bool.TRUE);
     }
 
     /**
@@ -55,7 +117,7 @@ public class Environment {
      * if a binding for l already exists, overwrites it
      */
     public Environment putFalse(Variable v) {
-        return new Environment (bindings.put (v, Bool.FALSE));
+        return put (v, Bool.FALSE);
     }
 
     /**
@@ -63,17 +125,74 @@ public class Environment {
      * the special UNDEFINED value of it is not bound
      */
     public Bool get(Variable v){
-        Bool b = bindings.get(v);
-        if (b==null) return Bool.UNDEFINED;
-        else return b;
+        int id = v.getId();
+        synchronized (store) {
+            reroot();
+            if (id >= store.values.length || store.values[id] == UNBOUND) return Bool.UNDEFINED;
+            return VALUES[store.values[id]];
+        }
     }
 
     public boolean isEmpty() {
-        return bindings.isEmpty();
+        return size == 0;
+    }
+
+    /**
+     * @return number of variables bound in this environment
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Make this the environment held in store.values, by applying the undo
+     * entries on the path from this to the current one in reverse order and
+     * reversing the links along the way. Iterative, so the path may be long.
+     * Requires: the caller holds the monitor of store
+     */
+    private void reroot() {
+        if (next == null) return;
+        List<Environment> path = new ArrayList<Environment>();
+        for (Environment e = this; e.next != null; e = e.next) {
+            path.add(e);
+        }
+        byte[] values = store.values;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Environment e = path.get(i);
+            Environment n = e.next;
+            // n becomes an undo entry against e
+            n.next = e;
+            n.index = e.index;
+            n.value = values[e.index];
+            values[e.index] = e.value;
+            e.next = null;
+        }
+    }
+
+    /**
+     * Call action with each bound variable and its value, in increasing
+     * order of Variable.getId. The bindings are copied first, so action
+     * may use this and other environments.
+     */
+    public void forEach(BiConsumer<Variable, Bool> action) {
+        byte[] values;
+        synchronized (store) {
+            reroot();
+            values = store.values.clone();
+        }
+        for (int id = 0; id < values.length; id++) {
+            if (values[id] != UNBOUND) action.accept(VariableIds.variable(id), VALUES[values[id]]);
+        }
     }
 
     @Override
     public String toString () {
-        return "Environment:" + bindings;
+        StringBuilder result = new StringBuilder("Environment:[");
+        int empty = result.length();
+        forEach((v, b) -> {
+            if (result.length() > empty) result.append(", ");
+            result.append(v).append("->").append(b);
+        });
+        return result.append(']').toString();
     }
 }
@@ -17,9 +17,16 @@ public class Variable {
      *     name != null
      */
     private final String name;
+    // dense id from VariableIds, or -1 until first asked for
+    private int id;
 
     public Variable (String name) {
+        this(name, -1);
+    }
+
+    Variable (String name, int id) {
         this.name = name;
+        this.id = id;
     }
 
     public Bool eval (Environment e) {
@@ -32,6 +39,20 @@ public class Variable {
     public String getName () {
         return name;
     }
+
+    /**
+     * @return the dense id of this variable, the same for all variables
+     * with the same name; see VariableIds
+     */
+    public int getId () {
+        int i = id;
+        if (i < 0) {
+            // racing threads compute the same id, so the write is benign
+            i = VariableIds.idOf(name);
+            id = i;
+        }
+        return i;
+    }
     
     /**
      * @return true iff this and o represent the same literal
@@ -43,4 +64,9 @@ public class Variable {
         Variable v = (Variable) o;
         return v.name.equals(name); 
     }
+
+    @Override
+    public int hashCode () {
+        return name.hashCode();
+    }
 }
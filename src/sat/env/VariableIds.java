@@ -0,0 +1,75 @@
+package sat.env;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table assigning each variable name a dense integer id, in order of first
+ * request, so that per-variable data can be kept in arrays indexed by id.
+ * Safe to use from several threads.
+ */
+public final class VariableIds {
+    /*
+     * Rep invariant:
+     *     ids maps exactly count names to the ids 0..count-1
+     *     variables.get(i).getName() is the name with id i, for i < count
+     */
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private static volatile AtomicReferenceArray<Variable> variables = new AtomicReferenceArray<Variable>(64);
+    private static int count;
+
+    // guards count and growth of variables
+    private static final Object lock = new Object();
+
+    private VariableIds() {
+    }
+
+    /**
+     * @return the id of the variable with the given name, assigning the
+     * next free id if the name is new
+     */
+    public static int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.computeIfAbsent(name, VariableIds::allocate);
+        }
+        return id;
+    }
+
+    /**
+     * @return number of ids assigned so far; every id is below this
+     */
+    public static int count() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    /**
+     * Requires: id was returned by idOf
+     * @return a variable with that id
+     */
+    public static Variable variable(int id) {
+        return variables.get(id);
+    }
+
+    /*
+     * Called by computeIfAbsent at most once per name.
+     */
+    private static Integer allocate(String name) {
+        synchronized (lock) {
+            int id = count++;
+            AtomicReferenceArray<Variable> table = variables;
+            if (id == table.length()) {
+                AtomicReferenceArray<Variable> grown = new AtomicReferenceArray<Variable>(id << 1);
+                for (int i = 0; i < id; i++) {
+                    grown.set(i, table.get(i));
+                }
+                table = grown;
+                variables = grown;
+            }
+            table.set(id, new Variable(name, id));
+            return id;
+        }
+    }
+}
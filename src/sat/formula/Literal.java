@@ -18,6 +18,9 @@ public abstract class Literal {
     
     protected Variable var;
 
+    // dense id of var, assigned by LiteralRegistry
+    final int id;
+
     // not private, so it can be set in PosLiteral's factory method
     Literal negation;
 
@@ -38,12 +41,9 @@ public abstract class Literal {
         assert this.getNegation().var.getName().equals(var.getName()) : "Variable, Rep invariant: names match";
     }
 
-    Literal (String name) {
-        this(new Variable(name));
-    }
-    
-    Literal (Variable var) {
+    Literal (Variable var, int id) {
         this.var = var;
+        this.id = id;
     }
 
     /**
@@ -53,6 +53,14 @@ public abstract class Literal {
         return var;
     }
 
+    /**
+     * @return the dense id of this literal's variable, shared by the literal
+     * and its negation; ids run from 0 to LiteralRegistry.size()-1
+     */
+    public int getVariableId () {
+        return id;
+    }
+
     /**
      * @return the literal that corresponds to the negation of this
      */
@@ -0,0 +1,87 @@
+package sat.formula;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import sat.env.Variable;
+import sat.env.VariableIds;
+
+/**
+ * Interning table for literals, used by the factory methods of PosLiteral
+ * and NegLiteral. Lookups are hashed, so making a literal costs O(1)
+ * expected time, and the table may be used from several threads at once
+ * (e.g. by parallel parsers).
+ *
+ * Literals carry the dense integer id that VariableIds gives their
+ * variable, which clients can use to index arrays instead of hashing
+ * Variables. VariableIds is the only table of ids; this one only maps
+ * names to literals.
+ */
+public final class LiteralRegistry {
+    /*
+     * Rep invariant:
+     *     byName maps each interned name to its positive literal, and
+     *         byName.get(n).getVariable().getName().equals(n)
+     *     the id of an interned literal is VariableIds.idOf of its name
+     */
+    private static final ConcurrentHashMap<String, PosLiteral> byName =
+            new ConcurrentHashMap<String, PosLiteral>();
+
+    private LiteralRegistry() {
+    }
+
+    /**
+     * @return the unique positive literal of the variable with the given name
+     */
+    public static PosLiteral positive(String name) {
+        PosLiteral literal = byName.get(name);
+        if (literal == null) {
+            literal = byName.computeIfAbsent(name, LiteralRegistry::allocate);
+        }
+        return literal;
+    }
+
+    /**
+     * @return the unique negative literal of the variable with the given name
+     */
+    public static NegLiteral negative(String name) {
+        return (NegLiteral) positive(name).getNegation();
+    }
+
+    /**
+     * @return a bound on the ids of interned literals; every id is below this
+     */
+    public static int size() {
+        return VariableIds.count();
+    }
+
+    /**
+     * Requires: id was returned by getVariableId of an interned literal
+     * @return the positive literal of the variable with that id
+     */
+    public static PosLiteral byId(int id) {
+        return byName.get(VariableIds.variable(id).getName());
+    }
+
+    /**
+     * Requires: id was returned by getVariableId of an interned literal
+     * @return the variable with that id
+     */
+    public static Variable variable(int id) {
+        return VariableIds.variable(id);
+    }
+
+    /*
+     * Create the pair of literals for a new name. Called by computeIfAbsent
+     * at most once per name, which publishes the pair to other threads.
+     */
+    private static PosLiteral allocate(String name) {
+        int id = VariableIds.idOf(name);
+        Variable var = VariableIds.variable(id);
+        PosLiteral literal = new PosLiteral(var, id);
+        NegLiteral negated = new NegLiteral(var, id);
+        literal.negation = negated;
+        negated.negation = literal;
+        literal.checkRep();
+        return literal;
+    }
+}
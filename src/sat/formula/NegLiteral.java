@@ -16,9 +16,9 @@ import sat.env.Variable;
  */
 public class NegLiteral extends Literal {
 
-    // should NOT be used by clients
-    NegLiteral(String name) {
-        super(name);
+    // should NOT be used by clients; see LiteralRegistry
+    NegLiteral(Variable var, int id) {
+        super(var, id);
     }
 
     public static NegLiteral make (Variable var) {
@@ -26,8 +26,7 @@ public class NegLiteral extends Literal {
     }
     
     public static NegLiteral make (String name) {
-        Literal posLiteral = PosLiteral.make(name);
-        return (NegLiteral) posLiteral.getNegation();
+        return LiteralRegistry.negative(name);
     }
 
     public Bool eval (Environment e) {
@@ -7,8 +7,6 @@
 package sat.formula;
 
 import sat.env.Variable;
-import immutable.ImListMap;
-import immutable.ImMap;
 
 /**
  * Class representing positive literals.
@@ -16,14 +14,14 @@ import immutable.ImMap;
  * PosLiteral objects are immutable.
  */
 public class PosLiteral extends Literal {
-    /* 
-     * Mapping of positive literals that have already been allocated, keyed on their names
-     * Invariant: non null, and no key or value is null
+    /*
+     * Literals that have already been allocated are interned in
+     * LiteralRegistry, keyed on their names.
      */
-    static ImMap<String,PosLiteral> allocatedPosLiterals = new ImListMap<String,PosLiteral>();
 
-    private PosLiteral (String name) {
-        super (name);
+    // should NOT be used by clients; see LiteralRegistry
+    PosLiteral (Variable var, int id) {
+        super (var, id);
     }    
     
     public static PosLiteral make (Variable var) {
@@ -33,19 +31,11 @@ public class PosLiteral extends Literal {
     /**
      * Factory method. Preserves the invariant that only one object
      * will exist to represent a literal of a given name. 
+     * Safe to call from several threads.
      * @return the positive literal with the given name
      */
     public static PosLiteral make (String name) {
-        PosLiteral literal = allocatedPosLiterals.get(name);
-        if (literal==null) {
-            literal = new PosLiteral(name);
-            NegLiteral negated = new NegLiteral(name);
-            literal.negation = negated;
-            negated.negation = literal;
-            allocatedPosLiterals = allocatedPosLiterals.put(name, literal);
-        }
-        literal.checkRep(); 
-        return literal;
+        return LiteralRegistry.positive(name);
     }
 
     public String toString () {
@@ -0,0 +1,76 @@
+package sat.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes integers straight into byte buffers, as decimal text or as
+ * variable-length unsigned integers, for the writers of this package and
+ * of sat.proof. Callers make room first, e.g. by flushing the buffer; no
+ * method writes more than MAX_INT_DIGITS or MAX_VARINT_BYTES bytes.
+ */
+public final class ByteEncoding {
+    /**
+     * Most bytes putInt writes: a sign and ten digits.
+     */
+    public static final int MAX_INT_DIGITS = 11;
+
+    /**
+     * Most bytes putVarint writes.
+     */
+    public static final int MAX_VARINT_BYTES = 5;
+
+    private ByteEncoding() {
+    }
+
+    /**
+     * Put the decimal digits of x into buf, with a '-' if it is negative.
+     * Requires: buf has at least MAX_INT_DIGITS bytes remaining
+     */
+    public static void putInt(ByteBuffer buf, int x) {
+        if (x == 0) {
+            buf.put((byte) '0');
+            return;
+        }
+        long y = x;
+        if (y < 0) {
+            buf.put((byte) '-');
+            y = -y;
+        }
+        int start = buf.position();
+        while (y > 0) {
+            buf.put((byte) ('0' + y % 10));
+            y /= 10;
+        }
+        // digits were put least significant first
+        for (int i = start, j = buf.position() - 1; i < j; i++, j--) {
+            byte t = buf.get(i);
+            buf.put(i, buf.get(j));
+            buf.put(j, t);
+        }
+    }
+
+    /**
+     * Put u into buf, taken as unsigned, seven bits per byte, least
+     * significant first, with the high bit set on all bytes but the last.
+     * Requires: buf has at least MAX_VARINT_BYTES bytes remaining
+     */
+    public static void putVarint(ByteBuffer buf, int u) {
+        while ((u & ~0x7f) != 0) {
+            buf.put((byte) ((u & 0x7f) | 0x80));
+            u >>>= 7;
+        }
+        buf.put((byte) u);
+    }
+
+    /**
+     * @return number of bytes putVarint writes for u
+     */
+    public static int varintLength(int u) {
+        int n = 1;
+        while ((u & ~0x7f) != 0) {
+            u >>>= 7;
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,116 @@
+package sat.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Encodes text and integers into a direct buffer that is written to a
+ * channel whenever it fills, for the writers of this package. Write errors
+ * surface as UncheckedIOException, so that encoding loops and callbacks
+ * need not declare them.
+ */
+final class ChannelOutput {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    ChannelOutput(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Open a new or truncated file for writing.
+     * @throws IOException if the file cannot be opened
+     */
+    static FileChannel create(String filePath) throws IOException {
+        return FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Make room for n more bytes without a write in between.
+     * Requires: n <= 64KiB
+     */
+    void reserve(int n) {
+        if (buffer.remaining() < n) flush();
+    }
+
+    /**
+     * @return number of bytes put since the last write to the channel
+     */
+    int position() {
+        return buffer.position();
+    }
+
+    void put(char c) {
+        reserve(1);
+        buffer.put((byte) c);
+    }
+
+    void put(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                // rare: encode the rest properly
+                for (byte b : s.substring(i).getBytes(StandardCharsets.UTF_8)) {
+                    reserve(1);
+                    buffer.put(b);
+                }
+                return;
+            }
+            put(c);
+        }
+    }
+
+    /**
+     * Put the decimal digits of x, with a '-' if it is negative.
+     */
+    void putInt(int x) {
+        reserve(ByteEncoding.MAX_INT_DIGITS);
+        ByteEncoding.putInt(buffer, x);
+    }
+
+    /**
+     * Put u as a variable-length unsigned integer, see ByteEncoding.
+     */
+    void putVarint(int u) {
+        reserve(ByteEncoding.MAX_VARINT_BYTES);
+        ByteEncoding.putVarint(buffer, u);
+    }
+
+    /**
+     * Put the bytes of b in order.
+     */
+    void put(ByteBuffer b) {
+        while (b.hasRemaining()) {
+            reserve(1);
+            int n = Math.min(b.remaining(), buffer.remaining());
+            ByteBuffer slice = b.duplicate();
+            slice.limit(slice.position() + n);
+            buffer.put(slice);
+            b.position(b.position() + n);
+        }
+    }
+
+    /**
+     * Write out the buffered bytes.
+     */
+    void flush() {
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write output", e);
+        }
+    }
+}
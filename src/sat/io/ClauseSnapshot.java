@@ -0,0 +1,356 @@
+package sat.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import sat.preprocess.Preprocessor;
+import sat.solver.ClauseArena;
+import sat.solver.Lit;
+
+/**
+ * A clause database saved in a compact binary file, for problems that are
+ * loaded many times: reading a snapshot decodes integers from a memory
+ * mapping straight into a ClauseArena, with no text to tokenize. A snapshot
+ * may hold a preprocessed problem together with what extendModel needs to
+ * turn its models into models of the original problem, so preprocessing is
+ * also done only once.
+ *
+ * File format, all integers little-endian:
+ *     bytes 0-3    magic "SCDB"
+ *     bytes 4-7    format version, 1
+ *     bytes 8-11   flags: bit 0 set iff the problem is preprocessed
+ *     bytes 12-15  number of variables
+ *     bytes 16-19  number of clauses
+ *     bytes 20-23  number of literals
+ *     bytes 24-31  length in bytes of the clause section
+ *     bytes 32-35  length in ints of the reconstruction section
+ *     bytes 36-39  0
+ * then the clause section: for each clause its length, then for each of
+ * its literals the difference from the literal before it (from 0 for the
+ * first), zigzag-encoded; then the reconstruction section, its ints as
+ * they are. Every number is a variable-length unsigned integer, seven bits
+ * per byte, least significant first, high bit set on all bytes but the last.
+ * Literals are in the Lit encoding, variable v numbered v+1 in DIMACS.
+ */
+public final class ClauseSnapshot {
+    private static final int MAGIC = 'S' | 'C' << 8 | 'D' << 16 | 'B' << 24;
+    private static final int VERSION = 1;
+    private static final int PREPROCESSED = 1;
+    private static final int HEADER_SIZE = 40;
+    // most variables whose literals are all nonnegative ints
+    private static final int MAX_VARS = 1 << 30;
+    // largest part of a file mapped at once
+    private static final long WINDOW = 1L << 30;
+
+    private final ClauseArena arena;
+    // Preprocessor.getReconstruction() of the preprocessing, or null if none
+    private final int[] reconstruction;
+
+    /**
+     * Create a snapshot of arena as it is.
+     */
+    public ClauseSnapshot(ClauseArena arena) {
+        this(arena, null);
+    }
+
+    /**
+     * Create a snapshot of arena, a problem preprocessed into it with the
+     * given reconstruction (see Preprocessor.getReconstruction), or not
+     * preprocessed if reconstruction is null.
+     */
+    public ClauseSnapshot(ClauseArena arena, int[] reconstruction) {
+        this.arena = arena;
+        this.reconstruction = reconstruction == null ? null : reconstruction.clone();
+    }
+
+    /**
+     * Simplify arena with sat.preprocess.Preprocessor.
+     * @return a snapshot of the simplified problem
+     */
+    public static ClauseSnapshot preprocessed(ClauseArena arena) {
+        Preprocessor preprocessor = new Preprocessor(arena);
+        preprocessor.simplify();
+        return new ClauseSnapshot(preprocessor.toArena(), preprocessor.getReconstruction());
+    }
+
+    /**
+     * @return the clauses of the snapshot, to be solved as they are
+     */
+    public ClauseArena getArena() {
+        return arena;
+    }
+
+    /**
+     * @return true iff the snapshot holds a preprocessed problem
+     */
+    public boolean isPreprocessed() {
+        return reconstruction != null;
+    }
+
+    /**
+     * Turn a model of getArena() into a model of the problem the snapshot
+     * was made from, in place; nothing to do unless it was preprocessed.
+     * Requires: model has one entry per variable of getArena(), in the
+     *     value codes of Solver, and satisfies every clause of getArena()
+     */
+    public void extendModel(byte[] model) {
+        if (reconstruction != null) Preprocessor.extendModel(reconstruction, model);
+    }
+
+    /**
+     * Write the snapshot to the channel, which is not closed.
+     * @throws IOException if the channel fails
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        int[] lits = arena.literals();
+        long clauseBytes = 0;
+        for (int i = 0; i < arena.numClauses(); i++) {
+            clauseBytes += ByteEncoding.varintLength(arena.clauseSize(i));
+            int prev = 0;
+            for (int k = arena.start(i); k < arena.end(i); k++) {
+                clauseBytes += ByteEncoding.varintLength(zigzag(lits[k] - prev));
+                prev = lits[k];
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(reconstruction != null ? PREPROCESSED : 0)
+                .putInt(arena.numVars()).putInt(arena.numClauses()).putInt(arena.numLits())
+                .putLong(clauseBytes).putInt(reconstruction != null ? reconstruction.length : 0).putInt(0);
+        header.flip();
+
+        ChannelOutput out = new ChannelOutput(channel);
+        try {
+            out.put(header);
+            for (int i = 0; i < arena.numClauses(); i++) {
+                out.putVarint(arena.clauseSize(i));
+                int prev = 0;
+                for (int k = arena.start(i); k < arena.end(i); k++) {
+                    out.putVarint(zigzag(lits[k] - prev));
+                    prev = lits[k];
+                }
+            }
+            if (reconstruction != null) {
+                for (int x : reconstruction) {
+                    out.putVarint(x);
+                }
+            }
+            out.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Write the snapshot to a new or truncated file.
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String filePath) throws IOException {
+        try (FileChannel channel = ChannelOutput.create(filePath)) {
+            write(channel);
+        }
+    }
+
+    /**
+     * Read the snapshot file at filePath through a memory mapping.
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static ClauseSnapshot read(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return read(new Input(channel));
+        }
+    }
+
+    /**
+     * Read a snapshot from the remaining bytes of buf.
+     * @return the snapshot
+     * @throws IOException if the bytes are not a valid snapshot
+     */
+    public static ClauseSnapshot read(ByteBuffer buf) throws IOException {
+        return read(new Input(buf.slice()));
+    }
+
+    /**
+     * @return true iff the file at filePath starts like a snapshot
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSnapshot(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+            }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Load the problem at filePath, a snapshot or a DIMACS file, which may
+     * be compressed.
+     * @return the snapshot, or a snapshot of the clauses of the DIMACS file
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    public static ClauseSnapshot load(String filePath) throws IOException {
+        if (isSnapshot(filePath)) return read(filePath);
+        return new ClauseSnapshot(DimacsParser.parse(filePath));
+    }
+
+    private static ClauseSnapshot read(Input in) throws IOException {
+        ByteBuffer header = in.header();
+        if (header.getInt(0) != MAGIC) throw new IOException("snapshot: bad magic number");
+        if (header.getInt(4) != VERSION) throw new IOException("snapshot: unknown version " + header.getInt(4));
+        int flags = header.getInt(8);
+        int numVars = header.getInt(12);
+        int numClauses = header.getInt(16);
+        int numLits = header.getInt(20);
+        long clauseBytes = header.getLong(24);
+        int reconstructionLength = header.getInt(32);
+        // every clause length, literal and reconstruction int takes at least one byte
+        boolean preprocessed = (flags & PREPROCESSED) != 0;
+        if (numVars < 0 || numVars > MAX_VARS || numClauses < 0 || numLits < 0 || clauseBytes < 0 || reconstructionLength < 0
+                || (long) numClauses + numLits > clauseBytes
+                || clauseBytes + reconstructionLength > in.size() - HEADER_SIZE
+                || !preprocessed && reconstructionLength != 0) {
+            throw new IOException("snapshot: bad header");
+        }
+
+        ClauseArena arena = new ClauseArena(numVars, numClauses, numLits);
+        int[] clause = new int[16];
+        long litsLeft = numLits;
+        long start = in.position();
+        for (int i = 0; i < numClauses; i++) {
+            int len = in.varint();
+            if (len < 0 || len > litsLeft) throw new IOException("snapshot: clause " + i + " too long");
+            litsLeft -= len;
+            if (len > clause.length) clause = new int[Math.max(len, 2 * clause.length)];
+            int prev = 0;
+            for (int k = 0; k < len; k++) {
+                int u = in.varint();
+                int l = prev + ((u >>> 1) ^ -(u & 1));
+                if (l < 0 || l >= 2L * numVars) throw new IOException("snapshot: literal out of range");
+                clause[k] = l;
+                prev = l;
+            }
+            arena.addClause(clause, 0, len);
+        }
+        if (litsLeft != 0 || in.position() - start != clauseBytes) {
+            throw new IOException("snapshot: clause section does not match header");
+        }
+
+        int[] reconstruction = null;
+        if (preprocessed) {
+            reconstruction = new int[reconstructionLength];
+            for (int i = 0; i < reconstructionLength; i++) {
+                reconstruction[i] = in.varint();
+            }
+            checkReconstruction(reconstruction, numVars);
+        }
+        return new ClauseSnapshot(arena, reconstruction);
+    }
+
+    /*
+     * Check that r is a sequence of entries l1 .. ln w n, as
+     * Preprocessor.extendModel reads it, over variables below numVars.
+     */
+    private static void checkReconstruction(int[] r, int numVars) throws IOException {
+        int i = r.length - 1;
+        while (i >= 0) {
+            int len = r[i];
+            if (len < 0 || len > i - 1) throw new IOException("snapshot: bad reconstruction entry");
+            for (int k = i - 1 - len; k < i; k++) {
+                if (r[k] < 0 || r[k] >= 2L * numVars) throw new IOException("snapshot: literal out of range");
+            }
+            i -= len + 2;
+        }
+    }
+
+    private static int zigzag(int d) {
+        return (d << 1) ^ (d >> 31);
+    }
+
+    /*
+     * Bytes of a buffer, or of a file mapped one window at a time.
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private ByteBuffer window;
+        // file position of the start of window
+        private long windowStart;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            map(0);
+        }
+
+        Input(ByteBuffer buf) {
+            this.channel = null;
+            this.window = buf;
+        }
+
+        ByteBuffer header() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                header.put((byte) next());
+            }
+            return header;
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        long size() throws IOException {
+            return channel != null ? channel.size() : window.limit();
+        }
+
+        int varint() throws IOException {
+            int u = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = next();
+                u |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) return u;
+            }
+            throw new IOException("snapshot: bad number");
+        }
+
+        private int next() throws IOException {
+            if (!window.hasRemaining()) {
+                if (channel == null || position() >= channel.size()) {
+                    throw new IOException("snapshot: unexpected end of file");
+                }
+                map(position());
+            }
+            return window.get() & 0xff;
+        }
+
+        private void map(long from) throws IOException {
+            windowStart = from;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW, channel.size() - from));
+        }
+    }
+
+    /**
+     * Convert between DIMACS and snapshots:
+     *     ClauseSnapshot [-preprocess] in.cnf out.snap
+     *     ClauseSnapshot -dimacs in.snap out.cnf
+     * The DIMACS input may be compressed. The DIMACS output of a
+     * preprocessed snapshot is the preprocessed problem.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("-dimacs")) {
+            DimacsWriter.write(read(args[1]).getArena(), args[2]);
+        } else if (args.length == 3 && args[0].equals("-preprocess")) {
+            preprocessed(DimacsParser.parse(args[1])).write(args[2]);
+        } else if (args.length == 2) {
+            new ClauseSnapshot(DimacsParser.parse(args[0])).write(args[1]);
+        } else {
+            System.err.println("usage: ClauseSnapshot [-preprocess] in.cnf out.snap");
+            System.err.println("       ClauseSnapshot -dimacs in.snap out.cnf");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package sat.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A compression format that CompressedInput can read, recognized by the
+ * magic bytes its files start with. gzip is decoded by the JDK; formats it
+ * does not know, such as xz and bzip2, can be decoded by an external
+ * command or by a Codec wrapping a third-party library.
+ */
+public interface Codec {
+    /**
+     * @return a short name of the format, e.g. "gzip"
+     */
+    String name();
+
+    /**
+     * @return the bytes every compressed file of this format starts with
+     */
+    byte[] magic();
+
+    /**
+     * @return a stream of the bytes that the compressed bytes of in
+     * decompress to; closing it closes in
+     * @throws IOException if in cannot be read or does not start a valid
+     * compressed stream
+     */
+    InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * @return the gzip codec of the JDK, which also reads the concatenated
+     * members written by parallel compressors
+     */
+    static Codec gzip() {
+        return new Codec() {
+            public String name() {
+                return "gzip";
+            }
+
+            public byte[] magic() {
+                return new byte[] {0x1f, (byte) 0x8b};
+            }
+
+            public InputStream decompress(InputStream in) throws IOException {
+                return new GZIPInputStream(in, 1 << 16);
+            }
+        };
+    }
+
+    /**
+     * Make a codec that runs command, e.g. "xz", "-dc", with the compressed
+     * bytes on its standard input and reads its standard output. A second
+     * thread copies the input to the command.
+     * @return the codec
+     */
+    static Codec command(String name, byte[] magic, String... command) {
+        return new CommandCodec(name, magic, command);
+    }
+}
@@ -0,0 +1,87 @@
+package sat.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * A codec that runs an external decompressor, see Codec.command.
+ */
+class CommandCodec implements Codec {
+    private final String name;
+    private final byte[] magic;
+    private final String[] command;
+
+    CommandCodec(String name, byte[] magic, String... command) {
+        this.name = name;
+        this.magic = magic.clone();
+        this.command = command.clone();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public byte[] magic() {
+        return magic.clone();
+    }
+
+    public InputStream decompress(InputStream in) throws IOException {
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        } catch (IOException e) {
+            throw new IOException("cannot run " + command[0] + " to read " + name + " input", e);
+        }
+        Thread feeder = new Thread(() -> {
+            try (InputStream from = in; OutputStream to = process.getOutputStream()) {
+                from.transferTo(to);
+            } catch (IOException e) {
+                // the command stopped reading, e.g. because its output was closed early
+                process.destroy();
+            }
+        }, command[0] + " input");
+        feeder.setDaemon(true);
+        feeder.start();
+        return new Output(process);
+    }
+
+    /*
+     * The standard output of the command, which fails at its end if the
+     * command did not succeed.
+     */
+    private final class Output extends InputStream {
+        private final Process process;
+        private final InputStream out;
+
+        Output(Process process) {
+            this.process = process;
+            this.out = process.getInputStream();
+        }
+
+        public int read() throws IOException {
+            return checked(out.read());
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            return checked(out.read(b, off, len));
+        }
+
+        public void close() throws IOException {
+            process.destroy();
+            out.close();
+        }
+
+        private int checked(int n) throws IOException {
+            if (n >= 0) return n;
+            try {
+                int status = process.waitFor();
+                if (status != 0) throw new IOException(command[0] + " failed with status " + status);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("interrupted waiting for " + command[0]);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package sat.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Opens input files that may be compressed, recognizing the format by the
+ * first bytes of the file rather than its name. Plain files are read
+ * directly. Compressed ones are decompressed on a thread of their own,
+ * a few buffers ahead of the reader, so that decompression and parsing
+ * overlap and the decompressed file is never stored.
+ *
+ * gzip is always known; xz and bzip2 are read by the xz and bzip2
+ * commands if they are installed. register adds other codecs.
+ */
+public final class CompressedInput {
+    private static final int CHUNK = 1 << 16;
+    // filled chunks the decompressing thread may run ahead of the reader
+    private static final int AHEAD = 4;
+    // bytes read to recognize a codec; longer magic is never matched
+    private static final int HEAD = 16;
+
+    // later entries take precedence
+    private static final List<Codec> codecs = new CopyOnWriteArrayList<Codec>(new Codec[] {
+        Codec.gzip(),
+        Codec.command("xz", new byte[] {(byte) 0xfd, '7', 'z', 'X', 'Z', 0}, "xz", "-dc"),
+        Codec.command("bzip2", new byte[] {'B', 'Z', 'h'}, "bzip2", "-dc"),
+    });
+
+    private CompressedInput() {
+    }
+
+    /**
+     * Make codec read the files that start with its magic bytes, instead
+     * of any codec registered before with the same magic bytes.
+     */
+    public static void register(Codec codec) {
+        codecs.add(codec);
+    }
+
+    /**
+     * @return the codec of the file at filePath, or null if it does not
+     * start with the magic bytes of a known codec
+     * @throws IOException if the file cannot be read
+     */
+    public static Codec codecOf(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return codecOf(channel);
+        }
+    }
+
+    /**
+     * Open the file at filePath for reading its decompressed bytes.
+     * Closing the channel stops the decompression.
+     * @return a channel of the bytes of the file, decompressed if it starts
+     * with the magic bytes of a known codec
+     * @throws IOException if the file cannot be read
+     */
+    public static ReadableByteChannel open(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            Codec codec = codecOf(channel);
+            channel.position(0);
+            if (codec == null) return channel;
+            return new Decompressing(codec, Channels.newInputStream(channel), filePath);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open in for reading its decompressed bytes, as open(filePath).
+     * @return a channel of the bytes of in, decompressed if they start with
+     * the magic bytes of a known codec
+     * @throws IOException if in cannot be read
+     */
+    public static ReadableByteChannel open(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, CHUNK);
+        byte[] head = new byte[HEAD];
+        buffered.mark(head.length);
+        int n = buffered.readNBytes(head, 0, head.length);
+        buffered.reset();
+        Codec codec = codecOf(head, n);
+        if (codec == null) return Channels.newChannel(buffered);
+        return new Decompressing(codec, buffered, "input stream");
+    }
+
+    private static Codec codecOf(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEAD);
+        while (head.hasRemaining() && channel.read(head) >= 0) {
+        }
+        return codecOf(head.array(), head.position());
+    }
+
+    private static Codec codecOf(byte[] head, int n) {
+        for (int i = codecs.size() - 1; i >= 0; i--) {
+            Codec codec = codecs.get(i);
+            byte[] magic = codec.magic();
+            if (magic.length == 0 || magic.length > n) continue;
+            boolean matches = true;
+            for (int k = 0; k < magic.length && matches; k++) {
+                matches = head[k] == magic[k];
+            }
+            if (matches) return codec;
+        }
+        return null;
+    }
+
+    /*
+     * A channel of the bytes that a thread of its own decompresses, handed
+     * over in chunks through a bounded queue; empty chunks are recycled.
+     */
+    private static final class Decompressing implements ReadableByteChannel {
+        // marks the end of the input, after any failure has been recorded
+        private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+        private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<ByteBuffer>(AHEAD + 1);
+        private final BlockingQueue<ByteBuffer> empty = new ArrayBlockingQueue<ByteBuffer>(AHEAD + 2);
+        private final Thread thread;
+        private final InputStream compressed;
+        private volatile Throwable failure;
+        private ByteBuffer current;
+        private boolean open = true;
+
+        /*
+         * Rep invariant:
+         *     every chunk is in at most one of filled, empty and current
+         *     current == END implies the decompressing thread has ended
+         */
+
+        Decompressing(Codec codec, InputStream compressed, String source) {
+            this.compressed = compressed;
+            for (int i = 0; i < AHEAD + 2; i++) {
+                empty.add(ByteBuffer.allocate(CHUNK));
+            }
+            thread = new Thread(() -> run(codec), codec.name() + " decompression of " + source);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void run(Codec codec) {
+            boolean closed = false;
+            try (InputStream source = compressed; InputStream in = codec.decompress(source)) {
+                while (true) {
+                    ByteBuffer chunk = empty.take();
+                    byte[] b = chunk.array();
+                    int n = in.readNBytes(b, 0, b.length);
+                    if (n == 0) break;
+                    chunk.clear().limit(n);
+                    filled.put(chunk);
+                }
+            } catch (InterruptedException e) {
+                // closed by the reader, which no longer waits
+                closed = true;
+            } catch (Throwable e) {
+                // whatever the codec throws, the reader must not wait forever
+                failure = e;
+            } finally {
+                if (!closed) {
+                    try {
+                        filled.put(END);
+                    } catch (InterruptedException e) {
+                        // closed by the reader
+                    }
+                }
+            }
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) throw new ClosedChannelException();
+            while (current == null || !current.hasRemaining()) {
+                if (current == END) {
+                    if (failure != null) throw new IOException("cannot decompress input", failure);
+                    return -1;
+                }
+                if (current != null) empty.add(current);
+                try {
+                    current = filled.take();
+                } catch (InterruptedException e) {
+                    current = null;
+                    throw new InterruptedIOException("interrupted waiting for decompression");
+                }
+            }
+            int n = Math.min(dst.remaining(), current.remaining());
+            int limit = current.limit();
+            current.limit(current.position() + n);
+            dst.put(current);
+            current.limit(limit);
+            return n;
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        public void close() throws IOException {
+            if (!open) return;
+            open = false;
+            thread.interrupt();
+            // unblocks a decompressor stuck reading
+            compressed.close();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package sat.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import sat.solver.ClauseArena;
+import sat.solver.Lit;
+
+/**
+ * Streaming parser for CNF files in DIMACS format. Works directly on bytes,
+ * so no String or Literal is created per token, and appends clauses to a
+ * ClauseArena that the solver loads as is.
+ *
+ * Clauses end at a 0 token and may span lines or share a line. Comment
+ * lines start with 'c'; the "p cnf V C" header, if present, is used to
+ * presize the arena. Input after a '%' line (as in SATLIB files) is ignored.
+ *
+ * Bytes can be fed in pieces of any size, e.g. from successive reads of a
+ * channel; a token may be split between two pieces.
+ */
+public class DimacsParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // most clauses and literals the header may presize for when the input size is unknown
+    private static final int MAX_PRESIZE = 1 << 20;
+
+    private ClauseArena arena;
+    // literals of the clause being read
+    private int[] clause = new int[16];
+    private int clauseSize;
+
+    // tokenizer state carried between calls to feed
+    private boolean inComment;
+    private boolean inNumber;
+    private boolean negative;
+    private int number;
+    private boolean done;
+    private StringBuilder header;
+    // bytes of input, or -1 if unknown
+    private long inputSize = -1;
+
+    /*
+     * Rep invariant:
+     *     at most one of inComment, inNumber, header != null holds
+     *     number >= 0
+     */
+
+    /**
+     * Parse the DIMACS file at filePath, which may be compressed, see
+     * CompressedInput.
+     * @return the clauses of the file
+     * @throws IOException if the file cannot be read or is not valid DIMACS
+     */
+    public static ClauseArena parse(String filePath) throws IOException {
+        try (ReadableByteChannel channel = CompressedInput.open(filePath)) {
+            return parse(channel);
+        }
+    }
+
+    /**
+     * Parse DIMACS text read from the channel until end of stream.
+     * The channel is not closed.
+     * @return the clauses read
+     * @throws IOException if the channel fails or the text is not valid DIMACS
+     */
+    public static ClauseArena parse(ReadableByteChannel channel) throws IOException {
+        DimacsParser parser = new DimacsParser();
+        if (channel instanceof FileChannel) {
+            FileChannel file = (FileChannel) channel;
+            parser.setInputSize(file.size() - file.position());
+        }
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (channel.read(buf) >= 0) {
+            buf.flip();
+            parser.feed(buf);
+            buf.clear();
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Create a parser with no input yet.
+     */
+    public DimacsParser() {
+    }
+
+    /**
+     * Create a parser that appends to an existing arena, for parsing a file
+     * in pieces whose boundaries fall between clauses.
+     */
+    public DimacsParser(ClauseArena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Tell the parser how many bytes of input it will be fed. The header
+     * counts are only a hint for presizing the arena, which this bounds:
+     * each clause and each literal takes at least two bytes.
+     */
+    public void setInputSize(long bytes) {
+        inputSize = bytes;
+    }
+
+    /**
+     * Consume all remaining bytes of buf.
+     * @throws IOException if the input is not valid DIMACS
+     */
+    public void feed(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining() && !done) {
+            byte b = buf.get();
+            if (inComment) {
+                if (b == '\n') inComment = false;
+            } else if (header != null) {
+                if (b == '\n') {
+                    readHeader(header.toString());
+                    header = null;
+                } else {
+                    header.append((char) b);
+                }
+            } else if (b >= '0' && b <= '9') {
+                int digit = b - '0';
+                if (number > (Integer.MAX_VALUE - digit) / 10) {
+                    throw new IOException("DIMACS: literal out of range");
+                }
+                number = number * 10 + digit;
+                inNumber = true;
+            } else if (b == ' ' || b == '\n' || b == '\t' || b == '\r') {
+                if (inNumber) {
+                    endNumber();
+                } else if (negative) {
+                    throw new IOException("DIMACS: '-' not followed by a number");
+                }
+            } else if (inNumber) {
+                throw new IOException("DIMACS: unexpected character '" + (char) b + "' in number");
+            } else if (b == '-' && !negative) {
+                negative = true;
+            } else if (b == 'c' && !negative) {
+                inComment = true;
+            } else if (b == 'p' && !negative) {
+                header = new StringBuilder("p");
+            } else if (b == '%' && !negative) {
+                done = true;
+            } else {
+                throw new IOException("DIMACS: unexpected character '" + (char) b + "'");
+            }
+        }
+    }
+
+    /**
+     * Signal end of input. A last clause missing its terminating 0 is kept.
+     * @return the clauses parsed
+     * @throws IOException if the input ends in the middle of a token
+     */
+    public ClauseArena finish() throws IOException {
+        if (header != null) {
+            readHeader(header.toString());
+            header = null;
+        }
+        if (inNumber) endNumber();
+        if (negative) throw new IOException("DIMACS: input ends after '-'");
+        if (clauseSize > 0) endClause();
+        return arena();
+    }
+
+    private ClauseArena arena() {
+        if (arena == null) arena = new ClauseArena();
+        return arena;
+    }
+
+    private void endNumber() {
+        if (number == 0) {
+            endClause();
+        } else {
+            if (clauseSize == clause.length) {
+                clause = Arrays.copyOf(clause, clauseSize << 1);
+            }
+            clause[clauseSize++] = Lit.fromDimacs(negative ? -number : number);
+        }
+        number = 0;
+        negative = false;
+        inNumber = false;
+    }
+
+    private void endClause() {
+        arena().addClause(clause, 0, clauseSize);
+        clauseSize = 0;
+    }
+
+    /*
+     * Read "p cnf V C"; presize the arena if nothing has been parsed yet,
+     * for no more clauses and literals than the input can hold. The arena
+     * grows if the header undercounts.
+     */
+    private void readHeader(String line) throws IOException {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length != 4 || !fields[0].equals("p") || !fields[1].equals("cnf")) {
+            throw new IOException("DIMACS: bad problem line \"" + line.trim() + "\"");
+        }
+        int vars;
+        int clauses;
+        try {
+            vars = Integer.parseInt(fields[2]);
+            clauses = Integer.parseInt(fields[3]);
+        } catch (NumberFormatException e) {
+            throw new IOException("DIMACS: bad problem line \"" + line.trim() + "\"", e);
+        }
+        if (vars < 0 || clauses < 0) {
+            throw new IOException("DIMACS: negative count in problem line \"" + line.trim() + "\"");
+        }
+        if (arena == null) {
+            long cap = inputSize >= 0 ? inputSize / 2 : MAX_PRESIZE;
+            arena = new ClauseArena(vars, (int) Math.min(clauses, cap), (int) Math.min(3L * clauses, cap));
+        } else {
+            arena.ensureVars(vars);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package sat.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import sat.solver.ClauseArena;
+import sat.solver.Lit;
+
+/**
+ * Writes a ClauseArena as DIMACS text that DimacsParser reads back to the
+ * same clauses: a "p cnf V C" header, then one line per clause. Variable v
+ * is numbered v+1, whatever arena.variable(v) is named.
+ */
+public class DimacsWriter {
+    /**
+     * Write arena to the channel, which is not closed.
+     * @throws IOException if the channel fails
+     */
+    public static void write(ClauseArena arena, WritableByteChannel channel) throws IOException {
+        ChannelOutput out = new ChannelOutput(channel);
+        try {
+            out.put("p cnf ");
+            out.putInt(arena.numVars());
+            out.put(' ');
+            out.putInt(arena.numClauses());
+            out.put('\n');
+            int[] lits = arena.literals();
+            for (int i = 0; i < arena.numClauses(); i++) {
+                for (int k = arena.start(i); k < arena.end(i); k++) {
+                    out.putInt(Lit.toDimacs(lits[k]));
+                    out.put(' ');
+                }
+                out.put('0');
+                out.put('\n');
+            }
+            out.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Write arena to a new or truncated file.
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ClauseArena arena, String filePath) throws IOException {
+        try (FileChannel channel = ChannelOutput.create(filePath)) {
+            write(arena, channel);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package sat.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import sat.solver.ClauseArena;
+
+/**
+ * Loads very large DIMACS files by memory-mapping them and parsing
+ * chunks in parallel. Chunk boundaries are moved forward to just after
+ * a clause-terminating 0, so every chunk holds whole clauses; each chunk
+ * is parsed by its own DimacsParser and the results are concatenated in
+ * file order, giving the same ClauseArena as DimacsParser.parse.
+ * Compressed files are passed on to DimacsParser.parse.
+ */
+public class MappedDimacsLoader {
+    // files below this size, and chunks, are not split further unless asked
+    private static final long MIN_CHUNK = 1L << 20;
+    // a single mapping cannot exceed 2GB
+    private static final long MAX_MAPPING = Integer.MAX_VALUE;
+
+    /**
+     * Load using one thread per available processor.
+     * @return the clauses of the file
+     * @throws IOException if the file cannot be read or is not valid DIMACS
+     */
+    public static ClauseArena load(String filePath) throws IOException {
+        return load(filePath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Load using up to the given number of threads.
+     * Requires: threads > 0
+     * @return the clauses of the file
+     * @throws IOException if the file cannot be read or is not valid DIMACS
+     */
+    public static ClauseArena load(String filePath, int threads) throws IOException {
+        return load(filePath, threads, 0);
+    }
+
+    /**
+     * Load using up to the given number of threads, in chunks of about
+     * chunkSize bytes, or of a size chosen from the file size and the
+     * number of threads if chunkSize <= 0. Small chunks are only useful
+     * for testing how clauses are split between chunks.
+     * Requires: threads > 0
+     * @return the clauses of the file
+     * @throws IOException if the file cannot be read or is not valid DIMACS
+     */
+    public static ClauseArena load(String filePath, int threads, long chunkSize) throws IOException {
+        if (CompressedInput.codecOf(filePath) != null) {
+            // compressed bytes cannot be split, so decompress and parse as a stream
+            return DimacsParser.parse(filePath);
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunk = chunkSize > 0 ? chunkSize : Math.max(MIN_CHUNK, size / threads + 1);
+            chunk = Math.min(MAX_MAPPING, chunk);
+
+            // cut points, each just after a clause terminator (or at the ends)
+            List<Long> cuts = new ArrayList<Long>();
+            cuts.add(0L);
+            long pos = 0;
+            while (size - pos > chunk) {
+                long cut = nextClauseBoundary(channel, pos + chunk, size);
+                if (cut >= size) break;
+                cuts.add(cut);
+                pos = cut;
+            }
+            cuts.add(size);
+
+            int pieces = cuts.size() - 1;
+            if (pieces == 1 || threads == 1) {
+                ClauseArena result = new ClauseArena();
+                for (int i = 0; i < pieces; i++) {
+                    result.addAll(parseChunk(channel, cuts.get(i), cuts.get(i + 1)));
+                }
+                return result;
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, pieces));
+            try {
+                List<Future<ClauseArena>> parts = new ArrayList<Future<ClauseArena>>();
+                for (int i = 0; i < pieces; i++) {
+                    final long from = cuts.get(i);
+                    final long to = cuts.get(i + 1);
+                    parts.add(pool.submit(() -> parseChunk(channel, from, to)));
+                }
+                List<ClauseArena> arenas = new ArrayList<ClauseArena>();
+                int clauses = 0;
+                int lits = 0;
+                for (Future<ClauseArena> part : parts) {
+                    ClauseArena a = part.get();
+                    arenas.add(a);
+                    clauses += a.numClauses();
+                    lits += a.numLits();
+                }
+                ClauseArena result = new ClauseArena(0, clauses, lits);
+                for (ClauseArena a : arenas) {
+                    result.addAll(a);
+                }
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while loading " + filePath, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw new IOException("failed to load " + filePath, e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /*
+     * Parse bytes [from, to) of the file, which must hold whole clauses.
+     */
+    private static ClauseArena parseChunk(FileChannel channel, long from, long to) throws IOException {
+        // a DIMACS literal takes at least two bytes, and clauses rarely have fewer than 3 literals
+        long bytes = to - from;
+        ClauseArena arena = new ClauseArena(0, (int) (bytes / 8), (int) (bytes / 3));
+        DimacsParser parser = new DimacsParser(arena);
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, from, bytes);
+        parser.feed(buf);
+        return parser.finish();
+    }
+
+    /*
+     * Find the first position at or after pos that lies just after a
+     * clause-terminating 0 token. Starts at the next line so that comment
+     * lines are recognised, then reads tokens up to a 0.
+     * Returns size if there is none.
+     */
+    private static long nextClauseBoundary(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+        boolean lineStart = false;
+        boolean inComment = false;
+        boolean tokenStart = false;
+        boolean zero = false;
+        while (pos < size) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++, pos++) {
+                byte b = buf.get(i);
+                boolean space = b == ' ' || b == '\n' || b == '\t' || b == '\r';
+                if (!lineStart) {
+                    // skip the rest of the line pos started in
+                    if (b == '\n') {
+                        lineStart = true;
+                        tokenStart = true;
+                    }
+                } else if (inComment) {
+                    if (b == '\n') inComment = false;
+                } else if (space) {
+                    if (zero) return pos;
+                    tokenStart = true;
+                } else if (tokenStart && (b == 'c' || b == 'p')) {
+                    inComment = true;
+                } else {
+                    // zero holds iff the token read so far is exactly "0"
+                    zero = tokenStart && b == '0';
+                    tokenStart = false;
+                }
+            }
+        }
+        return size;
+    }
+}
@@ -1,38 +1,134 @@
 package sat.io;
 
+import sat.env.Bool;
 import sat.env.Environment;
 import sat.env.Variable;
+import sat.solver.ClauseArena;
+import sat.solver.Solver;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
+/**
+ * Writes solutions in one of two formats. ASSIGNMENT has one line
+ * "name:VALUE" per bound variable, e.g. "12:FALSE". COMPETITION is the
+ * output format of the SAT competitions: "s SATISFIABLE" then "v" lines
+ * listing the DIMACS literal true for each assigned variable and ending
+ * with 0, or just "s UNSATISFIABLE".
+ *
+ * Output is encoded straight from the model into a direct buffer that is
+ * written to the channel as it fills, so no string of the whole model is
+ * ever built.
+ */
 public class SatWriter {
+    public enum Format { ASSIGNMENT, COMPETITION }
 
-    public static void writer(Environment env) {
+    // "v" lines are ended once they pass this many characters
+    private static final int LINE_LENGTH = 78;
 
+    /**
+     * Write model, the values of the variables of arena in the value codes
+     * of Solver, or null if arena is unsatisfiable, in the given format.
+     * Unassigned variables are left out. The channel is not closed.
+     * @throws IOException if the channel fails
+     */
+    public static void write(ClauseArena arena, byte[] model, Format format,
+                             WritableByteChannel channel) throws IOException {
+        ChannelOutput out = new ChannelOutput(channel);
         try {
-        FileWriter fileWriter = new FileWriter(FilePath.FILE_OUT);
-        PrintWriter printWriter = new PrintWriter(fileWriter);
+            if (format == Format.COMPETITION) {
+                competition(out, model);
+            } else if (model != null) {
+                for (int v = 0; v < model.length; v++) {
+                    if (model[v] == Solver.TRUE) binding(out, arena.variable(v), Bool.TRUE);
+                    else if (model[v] == Solver.FALSE) binding(out, arena.variable(v), Bool.FALSE);
+                }
+            }
+            out.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        if (env == null) {
-            System.out.println("unsatisfiable");
-        } else {
-            System.out.println("satisfiable");
-            String output = env.toString();
+    /**
+     * Write model as write(arena, model, format, channel) to a new or
+     * truncated file.
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ClauseArena arena, byte[] model, Format format,
+                             String filePath) throws IOException {
+        try (FileChannel channel = ChannelOutput.create(filePath)) {
+            write(arena, model, format, channel);
+        }
+    }
 
-            output = output.substring(13, output.length() - 1);
-            output = output.replaceAll("->", ":");
-            output = output.replaceAll(", ", "\n");
+    /**
+     * Report on standard output whether env is a solution, and write its
+     * bindings in ASSIGNMENT format to FilePath.FILE_OUT, as
+     * writer(env, FilePath.FILE_OUT).
+     */
+    public static void writer(Environment env) {
+        writer(env, FilePath.FILE_OUT);
+    }
 
-            printWriter.println(output);
+    /**
+     * Report on standard output whether env is a solution, and write its
+     * bindings in ASSIGNMENT format, in increasing order of Variable.getId,
+     * to a new or truncated file. The file is truncated even if env is
+     * null, meaning unsatisfiable, so that it never keeps the bindings of
+     * an earlier solution.
+     */
+    public static void writer(Environment env, String filePath) {
+        try (FileChannel channel = ChannelOutput.create(filePath)) {
+            if (env == null) {
+                System.out.println("unsatisfiable");
+            } else {
+                System.out.println("satisfiable");
+                ChannelOutput out = new ChannelOutput(channel);
+                env.forEach((v, b) -> binding(out, v, b));
+                out.flush();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
         }
-        printWriter.close();
+    }
+
+    private static void competition(ChannelOutput out, byte[] model) {
+        if (model == null) {
+            out.put("s UNSATISFIABLE\n");
+            return;
+        }
+        out.put("s SATISFIABLE\n");
+        int column = 0;
+        for (int v = 0; v < model.length; v++) {
+            if (model[v] == Solver.UNDEF) continue;
+            if (column == 0) {
+                out.put('v');
+                column = 1;
+            }
+            // room for the whole literal, so that its length is the change of position
+            out.reserve(12);
+            int start = out.position();
+            out.put(' ');
+            out.putInt(model[v] == Solver.TRUE ? v + 1 : -(v + 1));
+            column += out.position() - start;
+            if (column > LINE_LENGTH) {
+                out.put('\n');
+                column = 0;
+            }
+        }
+        if (column == 0) out.put('v');
+        out.put(" 0\n");
+    }
 
-    } catch (IOException e) {
-        e.printStackTrace();
+    private static void binding(ChannelOutput out, Variable v, Bool b) {
+        out.put(v.getName());
+        out.put(':');
+        out.put(b.toString());
+        out.put('\n');
     }
-}
 
     public static void main(String[] args) {
         Environment env = new Environment();
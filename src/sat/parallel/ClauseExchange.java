@@ -0,0 +1,129 @@
+package sat.parallel;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import sat.solver.ClauseSharing;
+import sat.solver.Solver;
+
+/**
+ * A lock-free broadcast ring of learned clauses shared by the solvers of a
+ * portfolio. A clause is published if it has at most maxSize literals or
+ * an LBD of at most maxLbd; every other solver imports it at its next
+ * restart. A solver that falls more than capacity clauses behind skips
+ * the oldest ones, so a slow reader never blocks the writers.
+ *
+ * Writers claim a sequence number with one atomic increment and store an
+ * immutable entry in its slot; readers accept an entry only if its
+ * sequence number is the one they expect, which detects both slots not yet
+ * written and slots already overwritten.
+ */
+public class ClauseExchange {
+    /** Default number of clauses kept in the ring. */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+    /** Default size under which every learned clause is shared. */
+    public static final int DEFAULT_MAX_SIZE = 4;
+    /** Default LBD under which every learned clause is shared. */
+    public static final int DEFAULT_MAX_LBD = 2;
+
+    private final AtomicReferenceArray<Entry> ring;
+    // sequence number of the next entry to write
+    private final AtomicLong head = new AtomicLong();
+    private final int maxSize;
+    private final int maxLbd;
+    private final AtomicLong imported = new AtomicLong();
+
+    /*
+     * Rep invariant:
+     *     an entry with sequence number s is stored in slot s % capacity,
+     *     and only while head - capacity <= s < head
+     */
+
+    /*
+     * A published clause, never modified after construction.
+     */
+    private static final class Entry {
+        final long seq;
+        final int producer;
+        final int lbd;
+        final int[] lits;
+
+        Entry(long seq, int producer, int lbd, int[] lits) {
+            this.seq = seq;
+            this.producer = producer;
+            this.lbd = lbd;
+            this.lits = lits;
+        }
+    }
+
+    /**
+     * Create an exchange with the default capacity and filters.
+     */
+    public ClauseExchange() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_SIZE, DEFAULT_MAX_LBD);
+    }
+
+    /**
+     * Requires: capacity > 0
+     */
+    public ClauseExchange(int capacity, int maxSize, int maxLbd) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.maxSize = maxSize;
+        this.maxLbd = maxLbd;
+    }
+
+    /**
+     * Make the link of one solver to this exchange. Each solver needs its
+     * own link, with an id distinct from the other solvers' ids so that
+     * its own clauses are not imported back.
+     */
+    public ClauseSharing connect(int id) {
+        return new Link(id);
+    }
+
+    /**
+     * @return number of clauses published so far
+     */
+    public long getExported() {
+        return head.get();
+    }
+
+    /**
+     * @return number of clauses imported so far, summed over all solvers
+     */
+    public long getImported() {
+        return imported.get();
+    }
+
+    private final class Link implements ClauseSharing {
+        private final int id;
+        // sequence number of the next entry to read
+        private long next;
+
+        Link(int id) {
+            this.id = id;
+        }
+
+        public void exportClause(int[] lits, int len, int lbd) {
+            if (len > maxSize && lbd > maxLbd) return;
+            long seq = head.getAndIncrement();
+            ring.set((int) (seq % ring.length()), new Entry(seq, id, lbd, Arrays.copyOf(lits, len)));
+        }
+
+        public void importClauses(Solver solver) {
+            long end = head.get();
+            next = Math.max(next, end - ring.length());
+            while (next < end) {
+                Entry e = ring.get((int) (next % ring.length()));
+                // claimed but not yet written: look again at the next restart
+                if (e == null || e.seq < next) return;
+                if (e.seq == next && e.producer != id) {
+                    imported.incrementAndGet();
+                    if (!solver.addLearntClause(e.lits, e.lbd)) return;
+                }
+                next++;
+            }
+        }
+    }
+}
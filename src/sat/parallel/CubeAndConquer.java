@@ -0,0 +1,262 @@
+package sat.parallel;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import sat.solver.ClauseArena;
+import sat.solver.Lit;
+import sat.solver.Solver;
+
+/**
+ * Cube-and-conquer: split the search tree of a problem into cubes, i.e.
+ * partial assignments, by lookahead, and solve the cubes in parallel on a
+ * work-stealing ForkJoinPool. Each node of the split tree picks the
+ * variable whose two phases, looked ahead on, together imply the most
+ * assignments, and forks one subtask per phase; below the split depth a
+ * cube is handed to a CDCL solver. The first satisfiable cube stops the
+ * others through Solver.interrupt.
+ *
+ * Every cube is solved by its own solver, with the cube literals added as
+ * unit clauses, so clauses learned under one cube are never used under
+ * another, where they need not hold.
+ */
+public class CubeAndConquer {
+    /** Default number of variables looked ahead on at each split. */
+    public static final int DEFAULT_CANDIDATES = 64;
+    // cubes per thread aimed at by the default split depth, so stealing can balance uneven cubes
+    private static final int CUBES_PER_THREAD = 16;
+
+    private final int threads;
+    private int depth;
+    private int candidates = DEFAULT_CANDIDATES;
+    private final AtomicInteger cubes = new AtomicInteger();
+    private final AtomicInteger refuted = new AtomicInteger();
+
+    /**
+     * Create a solver that runs on the given number of threads, splitting
+     * into about CUBES_PER_THREAD cubes per thread.
+     * Requires: threads > 0
+     */
+    public CubeAndConquer(int threads) {
+        this.threads = threads;
+        this.depth = 32 - Integer.numberOfLeadingZeros(threads * CUBES_PER_THREAD - 1);
+    }
+
+    /**
+     * Split at most depth times along any branch, into at most 2^depth cubes.
+     * Requires: depth >= 0
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Look ahead on at most n free variables at each split, those with the
+     * most occurrences in the problem.
+     * Requires: n > 0
+     */
+    public void setCandidates(int n) {
+        this.candidates = n;
+    }
+
+    /**
+     * @return number of cubes handed to a CDCL solver by the last solve
+     */
+    public int getCubes() {
+        return cubes.get();
+    }
+
+    /**
+     * @return number of split-tree nodes of the last solve refuted by
+     * lookahead alone, without search
+     */
+    public int getRefuted() {
+        return refuted.get();
+    }
+
+    /**
+     * Solve problem by cube-and-conquer.
+     * @return a model of problem, with one value per variable in the value
+     * codes of Solver, or null if problem is unsatisfiable
+     */
+    public byte[] solve(ClauseArena problem) {
+        cubes.set(0);
+        refuted.set(0);
+        Run run = new Run(problem);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Cube(run, new int[0]));
+        } finally {
+            run.stop();
+            pool.shutdown();
+        }
+        return run.model.get();
+    }
+
+    /*
+     * State shared by the tasks of one solve.
+     */
+    private final class Run {
+        final ClauseArena problem;
+        // variables by decreasing number of occurrences, the lookahead candidates
+        final int[] order;
+        // model of the first satisfiable cube
+        final AtomicReference<byte[]> model = new AtomicReference<>();
+        // solvers currently searching, to interrupt once a model is found
+        final Set<Solver> running = ConcurrentHashMap.newKeySet();
+
+        Run(ClauseArena problem) {
+            this.problem = problem;
+            int n = problem.numVars();
+            int[] occurrences = new int[n];
+            int[] lits = problem.literals();
+            for (int i = 0; i < problem.numClauses(); i++) {
+                for (int k = problem.start(i); k < problem.start(i) + problem.clauseSize(i); k++) {
+                    occurrences[Lit.var(lits[k])]++;
+                }
+            }
+            // sort by descending count, then by variable, packed into one key
+            long[] keys = new long[n];
+            for (int v = 0; v < n; v++) {
+                keys[v] = ((long) -occurrences[v] << 32) | v;
+            }
+            Arrays.sort(keys);
+            order = new int[n];
+            for (int v = 0; v < n; v++) {
+                order[v] = (int) keys[v];
+            }
+        }
+
+        boolean done() {
+            return model.get() != null;
+        }
+
+        void found(byte[] m) {
+            if (model.compareAndSet(null, m)) stop();
+        }
+
+        void stop() {
+            for (Solver s : running) {
+                s.interrupt();
+            }
+        }
+    }
+
+    /*
+     * One node of the split tree: the problem under the cube literals.
+     * A model found below it is left in run.model.
+     */
+    private final class Cube extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final int[] lits;
+
+        Cube(Run run, int[] lits) {
+            this.run = run;
+            this.lits = lits;
+        }
+
+        @Override
+        protected void compute() {
+            if (run.done()) return;
+            Solver solver = new Solver(run.problem.numVars());
+            solver.setMode(Solver.Mode.CDCL);
+            solver.addClauses(run.problem);
+            for (int l : lits) {
+                solver.addClause(l);
+            }
+            if (!solver.propagateUnits()) {
+                refuted.incrementAndGet();
+                return;
+            }
+            if (lits.length < depth) {
+                int split = pickSplit(solver);
+                if (split == Lit.UNDEF && !solver.propagateUnits()) {
+                    refuted.incrementAndGet();
+                    return;
+                }
+                if (split != Lit.UNDEF) {
+                    Cube first = new Cube(run, extend(split));
+                    Cube second = new Cube(run, extend(Lit.not(split)));
+                    second.fork();
+                    first.compute();
+                    second.join();
+                    return;
+                }
+            }
+            conquer(solver);
+        }
+
+        /*
+         * Look ahead on both phases of the candidate variables and return
+         * the phase to try first of the variable with the best score, or
+         * Lit.UNDEF if there is none. A phase that falsifies a clause is a
+         * failed literal: its negation is added as a unit clause, and if
+         * both phases fail the solver is left unsatisfiable, so that
+         * propagateUnits returns false.
+         */
+        private int pickSplit(Solver solver) {
+            int best = Lit.UNDEF;
+            long bestScore = -1;
+            int looked = 0;
+            for (int k = 0; k < run.order.length && looked < candidates; k++) {
+                int v = run.order[k];
+                if (solver.value(v) != Solver.UNDEF) continue;
+                looked++;
+                int pos = solver.lookahead(Lit.make(v, false));
+                int neg = solver.lookahead(Lit.make(v, true));
+                if (pos < 0 || neg < 0) {
+                    if (pos < 0) solver.addClause(Lit.make(v, true));
+                    if (neg < 0) solver.addClause(Lit.make(v, false));
+                    if (!solver.propagateUnits()) return Lit.UNDEF;
+                    continue;
+                }
+                // the product favours variables that simplify in both branches
+                long score = (long) pos * neg + pos + neg;
+                if (score > bestScore) {
+                    bestScore = score;
+                    // the phase implying more is the more constrained one, tried first
+                    best = Lit.make(v, neg > pos);
+                }
+            }
+            if (best != Lit.UNDEF && solver.value(Lit.var(best)) != Solver.UNDEF) {
+                // assigned by a later failed literal; split again on what is left
+                return pickSplit(solver);
+            }
+            return best;
+        }
+
+        private int[] extend(int l) {
+            int[] c = Arrays.copyOf(lits, lits.length + 1);
+            c[lits.length] = l;
+            return c;
+        }
+
+        private void conquer(Solver solver) {
+            cubes.incrementAndGet();
+            run.running.add(solver);
+            try {
+                // a model found before registration would not have interrupted this solver
+                if (run.done()) return;
+                if (solver.solve()) {
+                    byte[] model = new byte[run.problem.numVars()];
+                    for (int v = 0; v < model.length; v++) {
+                        model[v] = solver.value(v);
+                    }
+                    run.found(model);
+                }
+            } catch (CancellationException e) {
+                // another cube was satisfiable
+            } finally {
+                run.running.remove(solver);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package sat.parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import sat.solver.BranchingHeuristic;
+import sat.solver.ClauseArena;
+import sat.solver.GeometricRestart;
+import sat.solver.GlucoseRestart;
+import sat.solver.JeroslowWangHeuristic;
+import sat.solver.LubyRestart;
+import sat.solver.RestartPolicy;
+import sat.solver.Solver;
+import sat.solver.VsidsHeuristic;
+
+/**
+ * Runs several differently configured solvers on the same problem, one
+ * thread each, and returns the answer of the first to finish. The others
+ * are then stopped through Solver.interrupt, which they notice at their
+ * next propagation.
+ *
+ * The problem arena is shared read-only by all workers; each builds its own
+ * watched copy of the clauses from it, so no locking is needed during search.
+ * Short or low-LBD learned clauses are passed between the workers through a
+ * ClauseExchange, so that one worker's conflicts also prune the others'
+ * search; each worker imports them at its restarts.
+ */
+public class PortfolioSolver {
+    /**
+     * One solver configuration of a portfolio. The suppliers are called once
+     * per solve, as heuristics and restart policies serve a single solver.
+     */
+    public static final class Config {
+        private final String name;
+        private final Solver.Mode mode;
+        private final Supplier<BranchingHeuristic> heuristic;
+        private final Supplier<RestartPolicy> restartPolicy;
+
+        public Config(String name, Solver.Mode mode, Supplier<BranchingHeuristic> heuristic,
+                      Supplier<RestartPolicy> restartPolicy) {
+            this.name = name;
+            this.mode = mode;
+            this.heuristic = heuristic;
+            this.restartPolicy = restartPolicy;
+        }
+
+        /**
+         * @return a short description of this configuration
+         */
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final List<Config> configs;
+    private String winner;
+    private int shareCapacity = ClauseExchange.DEFAULT_CAPACITY;
+    private int shareMaxSize = ClauseExchange.DEFAULT_MAX_SIZE;
+    private int shareMaxLbd = ClauseExchange.DEFAULT_MAX_LBD;
+    // exchange used by the last solve, or null
+    private ClauseExchange exchange;
+
+    /**
+     * Create a portfolio of the given configurations, run on one thread each.
+     * Requires: configs is not empty
+     */
+    public PortfolioSolver(List<Config> configs) {
+        this.configs = Collections.unmodifiableList(new ArrayList<>(configs));
+    }
+
+    /**
+     * Create a portfolio of defaultConfigs(threads).
+     * Requires: threads > 0
+     */
+    public PortfolioSolver(int threads) {
+        this(defaultConfigs(threads));
+    }
+
+    /**
+     * Make n CDCL configurations that differ in branching heuristic, VSIDS
+     * decay, initial phase, random seed and restart policy. The first is
+     * the configuration of a single default Solver.
+     */
+    public static List<Config> defaultConfigs(int n) {
+        List<Config> configs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            final long seed = i;
+            switch (i) {
+                case 0:
+                    configs.add(new Config("vsids/luby", Solver.Mode.CDCL,
+                            VsidsHeuristic::new, LubyRestart::new));
+                    break;
+                case 1:
+                    configs.add(new Config("vsids-negative/glucose", Solver.Mode.CDCL,
+                            () -> new VsidsHeuristic(0.95, true, true, null), GlucoseRestart::new));
+                    break;
+                case 2:
+                    configs.add(new Config("vsids-0.85/geometric", Solver.Mode.CDCL,
+                            () -> new VsidsHeuristic(0.85, true), GeometricRestart::new));
+                    break;
+                case 3:
+                    configs.add(new Config("jw/luby", Solver.Mode.CDCL,
+                            JeroslowWangHeuristic::new, LubyRestart::new));
+                    break;
+                default:
+                    // seeded VSIDS, alternating phase and restart policy
+                    boolean odd = i % 2 == 1;
+                    configs.add(new Config("vsids-seed" + i + (odd ? "-negative/glucose" : "/luby"),
+                            Solver.Mode.CDCL,
+                            () -> new VsidsHeuristic(0.9 + 0.01 * (seed % 9), true, odd, new Random(seed)),
+                            odd ? GlucoseRestart::new : LubyRestart::new));
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Share the learned clauses with at most maxSize literals or an LBD of
+     * at most maxLbd, through a ring of the given capacity; capacity 0
+     * disables sharing. The default is ClauseExchange's.
+     */
+    public void setSharing(int capacity, int maxSize, int maxLbd) {
+        this.shareCapacity = capacity;
+        this.shareMaxSize = maxSize;
+        this.shareMaxLbd = maxLbd;
+    }
+
+    /**
+     * @return the clause exchange of the last solve, for its statistics,
+     * or null if sharing was disabled or solve was not called
+     */
+    public ClauseExchange getExchange() {
+        return exchange;
+    }
+
+    /**
+     * @return the configurations of this portfolio
+     */
+    public List<Config> getConfigs() {
+        return configs;
+    }
+
+    /**
+     * @return the name of the configuration that answered the last solve,
+     * or null before the first
+     */
+    public String getWinner() {
+        return winner;
+    }
+
+    /**
+     * Solve problem with every configuration at once.
+     * @return a model of problem, with one value per variable in the value
+     * codes of Solver, or null if problem is unsatisfiable
+     */
+    public byte[] solve(ClauseArena problem) {
+        int n = configs.size();
+        Solver[] solvers = new Solver[n];
+        exchange = shareCapacity > 0 ? new ClauseExchange(shareCapacity, shareMaxSize, shareMaxLbd) : null;
+        for (int i = 0; i < n; i++) {
+            solvers[i] = new Solver(problem.numVars());
+            if (exchange != null) solvers[i].setClauseSharing(exchange.connect(i));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        CompletionService<Answer> answers = new ExecutorCompletionService<>(pool);
+        try {
+            for (int i = 0; i < n; i++) {
+                final int k = i;
+                answers.submit(() -> run(configs.get(k), solvers[k], problem, k));
+            }
+            for (int remaining = n; remaining > 0; remaining--) {
+                Answer answer;
+                try {
+                    answer = answers.take().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) continue;
+                    throw new IllegalStateException("portfolio worker failed", e.getCause());
+                }
+                winner = configs.get(answer.config).getName();
+                return answer.model;
+            }
+            throw new IllegalStateException("every portfolio worker was cancelled");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for the portfolio");
+        } finally {
+            for (Solver s : solvers) {
+                s.interrupt();
+            }
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Result of one worker: the index of its configuration and its model,
+     * null if the problem is unsatisfiable.
+     */
+    private static final class Answer {
+        final int config;
+        final byte[] model;
+
+        Answer(int config, byte[] model) {
+            this.config = config;
+            this.model = model;
+        }
+    }
+
+    private static Answer run(Config config, Solver solver, ClauseArena problem, int index) {
+        solver.setMode(config.mode);
+        solver.setHeuristic(config.heuristic.get());
+        solver.setRestartPolicy(config.restartPolicy.get());
+        solver.addClauses(problem);
+        if (!solver.solve()) {
+            return new Answer(index, null);
+        }
+        byte[] model = new byte[problem.numVars()];
+        for (int v = 0; v < model.length; v++) {
+            model[v] = solver.value(v);
+        }
+        return new Answer(index, model);
+    }
+}
@@ -0,0 +1,159 @@
+package sat.preprocess;
+
+import java.util.Arrays;
+
+import sat.solver.IntVec;
+import sat.solver.Lit;
+
+/**
+ * Equivalent-literal substitution. Each binary clause (a v b) gives the
+ * implications ~a -> b and ~b -> a; the literals of a strongly connected
+ * component of this implication graph are all equivalent, so each is
+ * replaced everywhere by one representative, the literal of the component
+ * with the smallest variable. A component holding both l and ~l makes the
+ * formula unsatisfiable. Components are found with an iterative version of
+ * Tarjan's algorithm, in time linear in the size of the graph.
+ */
+class EquivalentLiterals {
+    private final Preprocessor p;
+
+    EquivalentLiterals(Preprocessor p) {
+        this.p = p;
+    }
+
+    /**
+     * Substitute every literal by the representative of its component.
+     */
+    void run() {
+        if (!p.ok) return;
+        int[] repr = components();
+        if (!p.ok) return;
+        IntVec replaced = new IntVec();
+        for (int v = 0; v < p.numVars; v++) {
+            int r = repr[Lit.pos(v)];
+            if (r != Lit.pos(v)) {
+                // v takes the value of r
+                p.saveForModel(new int[] {Lit.pos(v), Lit.not(r)}, Lit.pos(v));
+                p.saveForModel(new int[] {Lit.neg(v), r}, Lit.neg(v));
+                p.eliminated[v] = true;
+                p.equivalences++;
+                replaced.push(v);
+            }
+        }
+        // clauses over a replaced variable, each once
+        IntVec affected = new IntVec();
+        boolean[] seen = new boolean[p.numClauses];
+        for (int i = 0; i < replaced.size(); i++) {
+            int v = replaced.get(i);
+            for (int l : new int[] {Lit.pos(v), Lit.neg(v)}) {
+                for (int c : p.occurs[l].toArray()) {
+                    if (!seen[c]) {
+                        seen[c] = true;
+                        affected.push(c);
+                    }
+                }
+            }
+        }
+        // the renamed clauses follow from the binary clauses of the
+        // components, so they are all added before any clause is removed
+        for (int i = 0; i < affected.size() && p.ok; i++) {
+            int[] old = p.clauses[affected.get(i)];
+            int[] renamed = new int[old.length];
+            for (int k = 0; k < old.length; k++) {
+                renamed[k] = repr[old[k]];
+            }
+            p.addClause(renamed, 0, renamed.length);
+        }
+        for (int i = 0; i < affected.size() && p.ok; i++) {
+            p.removeClause(affected.get(i));
+        }
+        p.propagate();
+    }
+
+    /*
+     * Returns repr, where repr[l] is the representative of the component
+     * of literal l. Sets p.ok to false if some component holds a literal
+     * and its negation.
+     */
+    private int[] components() {
+        int n = 2 * p.numVars;
+        int[] repr = new int[n];
+        int[] index = new int[n];
+        int[] low = new int[n];
+        // component[l] = number of the component of l once it is complete, -1 before
+        int[] component = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        IntVec stack = new IntVec();
+        // depth-first path, with the position reached in each node's successor list
+        IntVec path = new IntVec();
+        IntVec next = new IntVec();
+        int counter = 0;
+        int components = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            index[root] = low[root] = counter++;
+            stack.push(root);
+            onStack[root] = true;
+            path.push(root);
+            next.push(0);
+            while (!path.isEmpty()) {
+                int a = path.last();
+                int k = next.last();
+                // successors of a: the other literal of each binary clause holding ~a
+                IntVec out = p.occurs[Lit.not(a)];
+                if (k < out.size()) {
+                    next.set(next.size() - 1, k + 1);
+                    int[] c = p.clauses[out.get(k)];
+                    if (c.length != 2) continue;
+                    int b = c[0] == Lit.not(a) ? c[1] : c[0];
+                    if (index[b] < 0) {
+                        index[b] = low[b] = counter++;
+                        stack.push(b);
+                        onStack[b] = true;
+                        path.push(b);
+                        next.push(0);
+                    } else if (onStack[b]) {
+                        low[a] = Math.min(low[a], index[b]);
+                    }
+                    continue;
+                }
+                path.pop();
+                next.pop();
+                if (!path.isEmpty()) {
+                    int parent = path.last();
+                    low[parent] = Math.min(low[parent], low[a]);
+                }
+                if (low[a] != index[a]) continue;
+
+                // a is the root of a component: pop it and pick its representative
+                int first = stack.size();
+                do {
+                    first--;
+                } while (stack.get(first) != a);
+                int best = a;
+                for (int i = first; i < stack.size(); i++) {
+                    int l = stack.get(i);
+                    onStack[l] = false;
+                    component[l] = components;
+                    if (Lit.var(l) < Lit.var(best)) best = l;
+                }
+                for (int i = first; i < stack.size(); i++) {
+                    int l = stack.get(i);
+                    repr[l] = best;
+                    if (component[Lit.not(l)] == components && p.ok) {
+                        // l and ~l imply each other through binary clauses
+                        p.derived(new int[] {Lit.not(l)});
+                        p.derived(new int[0]);
+                        p.ok = false;
+                    }
+                }
+                stack.shrink(first);
+                components++;
+            }
+        }
+        return repr;
+    }
+}
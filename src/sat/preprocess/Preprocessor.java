@@ -0,0 +1,460 @@
+package sat.preprocess;
+
+import java.util.Arrays;
+
+import sat.proof.Proof;
+import sat.solver.ClauseArena;
+import sat.solver.IntVec;
+import sat.solver.Lit;
+import sat.solver.Solver;
+
+/**
+ * Simplifies a CNF formula before search, in the style of SatELite:
+ * top-level unit propagation, equivalent-literal substitution, failed-literal
+ * probing, pure-literal elimination, backward subsumption, self-subsuming
+ * strengthening and bounded variable elimination, all driven by occurrence
+ * lists.
+ *
+ * Variables keep their numbers, so the simplified formula given by toArena
+ * can be solved over the same variables as the original one. Eliminated
+ * variables no longer occur in it; extendModel gives them values that
+ * satisfy the original formula.
+ *
+ * Typical use: create from an arena, call simplify, solve toArena(), then
+ * pass the model to extendModel.
+ *
+ * Given a Proof, every step is logged as a clause addition or deletion
+ * that a DRAT checker can verify against the original formula, so that a
+ * refutation of the simplified formula logged by the solver afterwards
+ * completes a proof for the original one.
+ */
+public class Preprocessor {
+    final int numVars;
+
+    // clauses[i] = literals of clause i, or null once removed; arrays are never modified in place
+    int[][] clauses = new int[16][];
+    // number of slots of clauses used so far
+    int numClauses;
+    // signatures[i] has bit (var % 64) set for every variable of clause i
+    long[] signatures = new long[16];
+    // queued[i] iff clause i waits in subsumptionQueue
+    boolean[] queued = new boolean[16];
+
+    // occurs[l] = indices of the clauses containing literal l
+    final IntVec[] occurs;
+    // top-level assignment, indexed by variable, in the value codes of Solver
+    final byte[] values;
+    private final IntVec trail = new IntVec();
+    private int qhead;
+    final boolean[] eliminated;
+    // touched[v] iff a clause over v changed since v was last tried for elimination
+    final boolean[] touched;
+    // clauses added or strengthened since they were last used for subsumption
+    final IntVec subsumptionQueue = new IntVec();
+    // literals whose negation lost its last occurrence since PureLiterals last ran
+    final IntVec pureCandidates = new IntVec();
+    boolean ok = true;
+    // receiver of the proof steps, or null
+    private final Proof proof;
+    // false while the clauses of the input are being added
+    private boolean loaded;
+
+    /*
+     * Model reconstruction stack: a sequence of entries l1 .. ln w n, each a
+     * removed clause l1 .. ln with witness literal w, a literal of the clause
+     * that can be made true to satisfy it.
+     */
+    private final IntVec stack = new IntVec();
+
+    private final EquivalentLiterals equivalentLiterals;
+    private final Probing probing;
+    private final PureLiterals pureLiterals;
+    private final Subsumption subsumption;
+    private final VariableElimination elimination;
+
+    long equivalences;
+    long failedLiterals;
+    long impliedUnits;
+    long pureVars;
+    long subsumed;
+    long strengthened;
+    long eliminatedVars;
+
+    /*
+     * Rep invariant:
+     *     every clause clauses[i] != null has size >= 2, no duplicate or
+     *         complementary literals, no eliminated variable, and i appears
+     *         exactly once in occurs[l] for each of its literals l
+     *     occurs holds no other indices
+     *     trail holds the assigned literals; trail[qhead..] are not yet propagated
+     *
+     * Abstraction function:
+     *     the conjunction of the clauses in clauses and of the literals on
+     *     trail, which is satisfiable iff the original formula is; a model
+     *     of it extends to a model of the original formula by setting the
+     *     witnesses of the stack entries, newest first, whose clause is false
+     */
+
+    /**
+     * Create a preprocessor holding the clauses of arena.
+     */
+    public Preprocessor(ClauseArena arena) {
+        this(arena, null);
+    }
+
+    /**
+     * Create a preprocessor holding the clauses of arena, logging every
+     * simplification to proof unless it is null.
+     */
+    public Preprocessor(ClauseArena arena, Proof proof) {
+        this.proof = proof;
+        numVars = arena.numVars();
+        occurs = new IntVec[2 * numVars];
+        for (int l = 0; l < occurs.length; l++) {
+            occurs[l] = new IntVec();
+        }
+        values = new byte[numVars];
+        eliminated = new boolean[numVars];
+        touched = new boolean[numVars];
+        equivalentLiterals = new EquivalentLiterals(this);
+        probing = new Probing(this);
+        pureLiterals = new PureLiterals(this);
+        subsumption = new Subsumption(this);
+        elimination = new VariableElimination(this);
+        int[] lits = arena.literals();
+        for (int i = 0; i < arena.numClauses() && ok; i++) {
+            addClause(lits, arena.start(i), arena.clauseSize(i));
+        }
+        loaded = true;
+    }
+
+    /**
+     * Simplify the formula.
+     * @return false iff it was found unsatisfiable
+     */
+    public boolean simplify() {
+        propagate();
+        equivalentLiterals.run();
+        probing.run();
+        pureLiterals.run();
+        subsumption.run();
+        elimination.run();
+        return ok;
+    }
+
+    /**
+     * @return the simplified formula over the original variables, with one
+     * unit clause per variable fixed at the top level; contains an empty
+     * clause if the formula was found unsatisfiable
+     */
+    public ClauseArena toArena() {
+        ClauseArena arena = new ClauseArena(numVars, numClauses + trail.size(), 3 * numClauses);
+        if (!ok) {
+            arena.addClause();
+            return arena;
+        }
+        for (int i = 0; i < trail.size(); i++) {
+            arena.addClause(trail.get(i));
+        }
+        for (int i = 0; i < numClauses; i++) {
+            if (clauses[i] != null) arena.addClause(clauses[i]);
+        }
+        return arena;
+    }
+
+    /**
+     * Turn a model of toArena() into a model of the original formula, in place.
+     * Requires: model has one entry per variable, in the value codes of
+     *     Solver, and satisfies every clause of toArena()
+     */
+    public void extendModel(byte[] model) {
+        extendModel(stack.toArray(), model);
+    }
+
+    /**
+     * @return the information extendModel uses, for saving with toArena()
+     * and passing to extendModel(int[], byte[]) later
+     */
+    public int[] getReconstruction() {
+        return stack.toArray();
+    }
+
+    /**
+     * Turn a model of toArena() into a model of the original formula, in
+     * place, as extendModel(byte[]) of the preprocessor whose
+     * getReconstruction() gave reconstruction.
+     */
+    public static void extendModel(int[] reconstruction, byte[] model) {
+        int i = reconstruction.length - 1;
+        while (i >= 0) {
+            int len = reconstruction[i];
+            int witness = reconstruction[i - 1];
+            int start = i - 1 - len;
+            boolean satisfied = false;
+            for (int k = start; k < start + len && !satisfied; k++) {
+                int l = reconstruction[k];
+                satisfied = model[Lit.var(l)] == (Lit.isNeg(l) ? Solver.FALSE : Solver.TRUE);
+            }
+            if (!satisfied) {
+                model[Lit.var(witness)] = Lit.isNeg(witness) ? Solver.FALSE : Solver.TRUE;
+            }
+            i = start - 1;
+        }
+    }
+
+    /**
+     * @return number of variables replaced by an equivalent literal
+     */
+    public long getEquivalences() {
+        return equivalences;
+    }
+
+    /**
+     * @return number of literals whose propagation led to a conflict, and
+     * whose negation was therefore fixed
+     */
+    public long getFailedLiterals() {
+        return failedLiterals;
+    }
+
+    /**
+     * @return number of literals fixed because both phases of a probed
+     * variable imply them
+     */
+    public long getImpliedUnits() {
+        return impliedUnits;
+    }
+
+    /**
+     * @return number of variables removed because they occurred with one sign only
+     */
+    public long getPureLiterals() {
+        return pureVars;
+    }
+
+    /**
+     * @return number of clauses removed because another clause subsumed them
+     */
+    public long getSubsumed() {
+        return subsumed;
+    }
+
+    /**
+     * @return number of literals removed by self-subsuming resolution
+     */
+    public long getStrengthened() {
+        return strengthened;
+    }
+
+    /**
+     * @return number of variables eliminated by resolution
+     */
+    public long getEliminated() {
+        return eliminatedVars;
+    }
+
+    /**
+     * @return number of clauses of the simplified formula, units excluded
+     */
+    public int numClauses() {
+        int count = 0;
+        for (int i = 0; i < numClauses; i++) {
+            if (clauses[i] != null) count++;
+        }
+        return count;
+    }
+
+    /*
+     * Add the clause buf[from..from+len), dropping duplicate and false
+     * literals; satisfied clauses and tautologies are ignored and units are
+     * assigned (but not propagated).
+     */
+    void addClause(int[] buf, int from, int len) {
+        int[] c = new int[len];
+        int n = 0;
+        for (int i = from; i < from + len; i++) {
+            int l = buf[i];
+            byte val = value(l);
+            if (val == Solver.TRUE) return;
+            if (val == Solver.FALSE) continue;
+            boolean keep = true;
+            for (int k = 0; k < n; k++) {
+                if (c[k] == l) keep = false;
+                if (c[k] == Lit.not(l)) return;
+            }
+            if (keep) c[n++] = l;
+        }
+        if (n == 0) {
+            derived(new int[0]);
+            ok = false;
+        } else if (n == 1) {
+            assign(c[0]);
+        } else {
+            int[] kept = n == len ? c : Arrays.copyOf(c, n);
+            // a clause of the input is known to the proof checker unless it was shortened
+            if (loaded || n < len) derived(kept);
+            store(kept);
+        }
+    }
+
+    /*
+     * Store the normalized clause c and queue it for subsumption.
+     */
+    private void store(int[] c) {
+        if (numClauses == clauses.length) {
+            clauses = Arrays.copyOf(clauses, numClauses << 1);
+            signatures = Arrays.copyOf(signatures, numClauses << 1);
+            queued = Arrays.copyOf(queued, numClauses << 1);
+        }
+        int i = numClauses++;
+        clauses[i] = c;
+        signatures[i] = signature(c);
+        for (int l : c) {
+            occurs[l].push(i);
+            touched[Lit.var(l)] = true;
+        }
+        queue(i);
+    }
+
+    /*
+     * Remove clause i from the formula.
+     */
+    void removeClause(int i) {
+        deleted(clauses[i]);
+        for (int l : clauses[i]) {
+            unlink(l, i);
+        }
+        clauses[i] = null;
+    }
+
+    /*
+     * Remove literal l from clause i; a clause left with one literal is
+     * removed and its literal assigned.
+     */
+    void strengthen(int i, int l) {
+        int[] old = clauses[i];
+        int[] c = new int[old.length - 1];
+        int n = 0;
+        for (int q : old) {
+            if (q != l) c[n++] = q;
+        }
+        unlink(l, i);
+        if (n == 1) {
+            unlink(c[0], i);
+            clauses[i] = null;
+            assign(c[0]);
+        } else {
+            derived(c);
+            clauses[i] = c;
+            signatures[i] = signature(c);
+            queue(i);
+        }
+        deleted(old);
+    }
+
+    /*
+     * Push clause c, with witness w, on the model reconstruction stack.
+     */
+    void saveForModel(int[] c, int w) {
+        for (int l : c) {
+            stack.push(l);
+        }
+        stack.push(w);
+        stack.push(c.length);
+    }
+
+    /*
+     * Make l true at the top level; propagate does the rest.
+     */
+    void assign(int l) {
+        byte val = value(l);
+        if (val == Solver.TRUE) return;
+        derived(new int[] {l});
+        if (val == Solver.FALSE) {
+            derived(new int[0]);
+            ok = false;
+            return;
+        }
+        values[Lit.var(l)] = Lit.isNeg(l) ? Solver.FALSE : Solver.TRUE;
+        trail.push(l);
+    }
+
+    /*
+     * Remove the clauses satisfied by the assigned literals and the false
+     * literals from the others, until no new unit arises.
+     */
+    void propagate() {
+        while (ok && qhead < trail.size()) {
+            int l = trail.get(qhead++);
+            IntVec sat = occurs[l];
+            while (sat.size() > 0) {
+                removeClause(sat.last());
+            }
+            int[] falsified = occurs[Lit.not(l)].toArray();
+            for (int i : falsified) {
+                if (clauses[i] != null) strengthen(i, Lit.not(l));
+            }
+        }
+    }
+
+    /*
+     * Log to the proof, if any, that clause c was derived.
+     */
+    void derived(int[] c) {
+        if (proof != null) proof.addClause(c, 0, c.length);
+    }
+
+    /*
+     * Log to the proof, if any, that clause c was deleted.
+     */
+    void deleted(int[] c) {
+        if (proof != null) proof.deleteClause(c, 0, c.length);
+    }
+
+    /*
+     * @return the value of literal l at the top level
+     */
+    byte value(int l) {
+        byte val = values[Lit.var(l)];
+        return Lit.isNeg(l) ? (byte) -val : val;
+    }
+
+    /*
+     * Run subsumption over the queued clauses.
+     */
+    void subsume() {
+        subsumption.run();
+    }
+
+    private void queue(int i) {
+        if (!queued[i]) {
+            queued[i] = true;
+            subsumptionQueue.push(i);
+        }
+    }
+
+    private static long signature(int[] c) {
+        long sig = 0;
+        for (int l : c) {
+            sig |= 1L << (Lit.var(l) & 63);
+        }
+        return sig;
+    }
+
+    /*
+     * Remove clause i from occurs[l], not keeping order; if that was the
+     * last occurrence of l, ~l may have become pure.
+     */
+    private void unlink(int l, int i) {
+        IntVec occ = occurs[l];
+        touched[Lit.var(l)] = true;
+        for (int k = 0; k < occ.size(); k++) {
+            if (occ.get(k) == i) {
+                occ.set(k, occ.last());
+                occ.pop();
+                break;
+            }
+        }
+        if (occ.isEmpty()) pureCandidates.push(Lit.not(l));
+    }
+}
@@ -0,0 +1,127 @@
+package sat.preprocess;
+
+import sat.solver.IntVec;
+import sat.solver.Lit;
+import sat.solver.Solver;
+
+/**
+ * Failed-literal probing. Each variable v is tried both ways with unit
+ * propagation over the occurrence lists: if assuming a literal of v leads
+ * to a conflict, its negation holds at the top level; if both v and ~v
+ * imply a literal q, q holds at the top level. Probing stops once its
+ * propagation has visited PROBE_BUDGET literals.
+ */
+class Probing {
+    private static final long PROBE_BUDGET = 20_000_000;
+
+    private final Preprocessor p;
+    // assignment made by the current probe, indexed by variable
+    private final byte[] values;
+    private final IntVec trail = new IntVec();
+    // mark[l] == stamp iff l was implied by the positive probe of the current variable
+    private final int[] mark;
+    private int stamp;
+    private long work;
+
+    Probing(Preprocessor p) {
+        this.p = p;
+        this.values = new byte[p.numVars];
+        this.mark = new int[2 * p.numVars];
+    }
+
+    /**
+     * Probe every variable that occurs with both signs.
+     */
+    void run() {
+        for (int v = 0; v < p.numVars && p.ok && work < PROBE_BUDGET; v++) {
+            if (p.eliminated[v] || p.values[v] != Solver.UNDEF
+                    || p.occurs[Lit.pos(v)].isEmpty() || p.occurs[Lit.neg(v)].isEmpty()) {
+                continue;
+            }
+            if (!probe(Lit.pos(v))) {
+                undo();
+                p.failedLiterals++;
+                p.assign(Lit.neg(v));
+                p.propagate();
+                continue;
+            }
+            stamp++;
+            for (int i = 1; i < trail.size(); i++) {
+                mark[trail.get(i)] = stamp;
+            }
+            undo();
+            if (!probe(Lit.neg(v))) {
+                undo();
+                p.failedLiterals++;
+                p.assign(Lit.pos(v));
+                p.propagate();
+                continue;
+            }
+            IntVec implied = new IntVec();
+            for (int i = 1; i < trail.size(); i++) {
+                if (mark[trail.get(i)] == stamp) implied.push(trail.get(i));
+            }
+            undo();
+            for (int i = 0; i < implied.size(); i++) {
+                p.impliedUnits++;
+                // ~v v q follows by propagation, and then so does q
+                int[] binary = {Lit.neg(v), implied.get(i)};
+                p.derived(binary);
+                p.assign(implied.get(i));
+                p.deleted(binary);
+            }
+            p.propagate();
+        }
+    }
+
+    /*
+     * Assume l and propagate it; trail holds l and the literals it implies.
+     * Returns false iff some clause became false.
+     * Requires: the top-level assignment is fully propagated
+     */
+    private boolean probe(int l) {
+        assign(l);
+        for (int head = 0; head < trail.size(); head++) {
+            IntVec occ = p.occurs[Lit.not(trail.get(head))];
+            for (int k = 0; k < occ.size(); k++) {
+                int[] c = p.clauses[occ.get(k)];
+                work += c.length;
+                int unassigned = Lit.UNDEF;
+                int count = 0;
+                boolean satisfied = false;
+                for (int q : c) {
+                    byte val = value(q);
+                    if (val == Solver.TRUE) {
+                        satisfied = true;
+                        break;
+                    }
+                    if (val == Solver.UNDEF) {
+                        count++;
+                        unassigned = q;
+                    }
+                }
+                if (satisfied || count > 1) continue;
+                if (count == 0) return false;
+                assign(unassigned);
+            }
+        }
+        return true;
+    }
+
+    private void assign(int l) {
+        values[Lit.var(l)] = Lit.isNeg(l) ? Solver.FALSE : Solver.TRUE;
+        trail.push(l);
+    }
+
+    private void undo() {
+        for (int i = 0; i < trail.size(); i++) {
+            values[Lit.var(trail.get(i))] = Solver.UNDEF;
+        }
+        trail.clear();
+    }
+
+    private byte value(int l) {
+        byte val = values[Lit.var(l)];
+        return Lit.isNeg(l) ? (byte) -val : val;
+    }
+}
@@ -0,0 +1,51 @@
+package sat.preprocess;
+
+import sat.solver.IntVec;
+import sat.solver.Lit;
+import sat.solver.Solver;
+
+/**
+ * Pure-literal elimination. A literal l is pure when ~l occurs in no
+ * clause; making l true then satisfies every clause of its variable
+ * without falsifying any, so those clauses are removed and l is recorded
+ * for model reconstruction. The occurrence lists act as counters: a
+ * literal becomes a candidate exactly when the last occurrence of its
+ * negation is removed, so no pass over the whole formula is needed after
+ * the first.
+ */
+class PureLiterals {
+    private final Preprocessor p;
+    private boolean seeded;
+
+    PureLiterals(Preprocessor p) {
+        this.p = p;
+    }
+
+    /**
+     * Eliminate pure literals until no candidate is left.
+     */
+    void run() {
+        IntVec candidates = p.pureCandidates;
+        if (!seeded) {
+            seeded = true;
+            for (int l = 0; l < 2 * p.numVars; l++) {
+                if (p.occurs[Lit.not(l)].isEmpty()) candidates.push(l);
+            }
+        }
+        while (p.ok && !candidates.isEmpty()) {
+            int l = candidates.pop();
+            int v = Lit.var(l);
+            if (p.eliminated[v] || p.values[v] != Solver.UNDEF
+                    || p.occurs[l].isEmpty() || !p.occurs[Lit.not(l)].isEmpty()) {
+                continue;
+            }
+            p.saveForModel(new int[] {l}, l);
+            p.eliminated[v] = true;
+            p.pureVars++;
+            IntVec occ = p.occurs[l];
+            while (!occ.isEmpty()) {
+                p.removeClause(occ.last());
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package sat.preprocess;
+
+import sat.solver.IntVec;
+import sat.solver.Lit;
+
+/**
+ * Backward subsumption and self-subsuming strengthening. Each queued clause
+ * C is compared with the clauses D sharing its least frequent variable: if
+ * C is a subset of D, D is removed; if C is a subset of D except for one
+ * literal l with ~l in D, resolving them gives D without ~l, so ~l is
+ * removed from D.
+ */
+class Subsumption {
+    // result of check when C neither subsumes nor strengthens D
+    private static final int FAIL = -2;
+
+    private final Preprocessor p;
+    // mark[l] == stamp iff l is in the clause being compared against
+    private final int[] mark;
+    private int stamp;
+
+    Subsumption(Preprocessor p) {
+        this.p = p;
+        this.mark = new int[2 * p.numVars];
+    }
+
+    /**
+     * Use every queued clause for subsumption, until the queue is empty.
+     */
+    void run() {
+        IntVec queue = p.subsumptionQueue;
+        while (p.ok && !queue.isEmpty()) {
+            int c = queue.pop();
+            p.queued[c] = false;
+            if (p.clauses[c] != null) {
+                backward(c);
+                p.propagate();
+            }
+        }
+    }
+
+    /*
+     * Remove or strengthen the clauses that clause c subsumes or strengthens.
+     */
+    private void backward(int c) {
+        int[] cl = p.clauses[c];
+        int best = Lit.var(cl[0]);
+        for (int l : cl) {
+            if (occurrences(Lit.var(l)) < occurrences(best)) best = Lit.var(l);
+        }
+        for (int lit : new int[] {Lit.pos(best), Lit.neg(best)}) {
+            int[] candidates = p.occurs[lit].toArray();
+            for (int d : candidates) {
+                int[] dl = p.clauses[d];
+                if (d == c || dl == null || dl.length < cl.length
+                        || (p.signatures[c] & ~p.signatures[d]) != 0) {
+                    continue;
+                }
+                int flip = check(cl, dl);
+                if (flip == Lit.UNDEF) {
+                    p.removeClause(d);
+                    p.subsumed++;
+                } else if (flip != FAIL) {
+                    p.strengthen(d, Lit.not(flip));
+                    p.strengthened++;
+                }
+                // strengthening may have produced units that changed c itself
+                if (!p.ok || p.clauses[c] != cl) return;
+            }
+        }
+    }
+
+    /*
+     * Returns Lit.UNDEF if c is a subset of d, the literal l of c if c
+     * without l is a subset of d and ~l is in d, and FAIL otherwise.
+     */
+    private int check(int[] c, int[] d) {
+        stamp++;
+        for (int l : d) {
+            mark[l] = stamp;
+        }
+        int flip = Lit.UNDEF;
+        for (int l : c) {
+            if (mark[l] == stamp) continue;
+            if (flip == Lit.UNDEF && mark[Lit.not(l)] == stamp) {
+                flip = l;
+            } else {
+                return FAIL;
+            }
+        }
+        return flip;
+    }
+
+    private int occurrences(int v) {
+        return p.occurs[Lit.pos(v)].size() + p.occurs[Lit.neg(v)].size();
+    }
+}
@@ -0,0 +1,132 @@
+package sat.preprocess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import sat.solver.IntVec;
+import sat.solver.Lit;
+import sat.solver.Solver;
+
+/**
+ * Bounded variable elimination (Een and Biere, SatELite): a variable v is
+ * eliminated by replacing the clauses that contain it with all their
+ * non-tautological resolvents on v, provided there are no more resolvents
+ * than clauses removed and none is longer than CLAUSE_LIMIT. The clauses of
+ * one polarity are kept on the model reconstruction stack so a value of v
+ * can be recovered from a model of the remaining formula.
+ */
+class VariableElimination {
+    // resolvents longer than this make a variable not worth eliminating
+    private static final int CLAUSE_LIMIT = 20;
+    // variables with more than this many occurrences of both polarities are not tried
+    private static final int OCCURRENCE_LIMIT = 64;
+
+    private final Preprocessor p;
+    // mark[l] == stamp iff l is in the resolvent being built
+    private final int[] mark;
+    private int stamp;
+    private final IntVec resolvent = new IntVec();
+
+    VariableElimination(Preprocessor p) {
+        this.p = p;
+        this.mark = new int[2 * p.numVars];
+    }
+
+    /**
+     * Try to eliminate every touched variable, fewest occurrences first,
+     * until no variable is touched any more.
+     */
+    void run() {
+        while (p.ok) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int v = 0; v < p.numVars; v++) {
+                if (p.touched[v]) {
+                    p.touched[v] = false;
+                    if (!p.eliminated[v] && p.values[v] == Solver.UNDEF) candidates.add(v);
+                }
+            }
+            if (candidates.isEmpty()) return;
+            candidates.sort((a, b) -> Integer.compare(occurrences(a), occurrences(b)));
+            for (int v : candidates) {
+                if (!p.ok) return;
+                if (!p.eliminated[v] && p.values[v] == Solver.UNDEF && eliminate(v)) {
+                    p.subsume();
+                    p.propagate();
+                }
+            }
+        }
+    }
+
+    /*
+     * Eliminate v if that does not grow the formula.
+     * Returns true iff v was eliminated.
+     */
+    private boolean eliminate(int v) {
+        IntVec pos = p.occurs[Lit.pos(v)];
+        IntVec neg = p.occurs[Lit.neg(v)];
+        int limit = pos.size() + neg.size();
+        if (limit == 0 || (pos.size() > OCCURRENCE_LIMIT && neg.size() > OCCURRENCE_LIMIT)) {
+            return false;
+        }
+        List<int[]> resolvents = new ArrayList<>();
+        for (int i = 0; i < pos.size(); i++) {
+            for (int j = 0; j < neg.size(); j++) {
+                if (resolve(p.clauses[pos.get(i)], p.clauses[neg.get(j)], v)) {
+                    if (resolvent.size() > CLAUSE_LIMIT || resolvents.size() == limit) return false;
+                    resolvents.add(resolvent.toArray());
+                }
+            }
+        }
+
+        // keep the smaller side for model reconstruction, with the other literal as default
+        boolean keepPos = pos.size() <= neg.size();
+        int[] kept = (keepPos ? pos : neg).toArray();
+        int witness = keepPos ? Lit.pos(v) : Lit.neg(v);
+        for (int i : kept) {
+            p.saveForModel(p.clauses[i], witness);
+        }
+        p.saveForModel(new int[] {Lit.not(witness)}, Lit.not(witness));
+
+        // resolvents first, while the clauses they follow from are still there
+        int[] posClauses = pos.toArray();
+        int[] negClauses = neg.toArray();
+        for (int[] r : resolvents) {
+            p.addClause(r, 0, r.length);
+        }
+        for (int i : posClauses) {
+            p.removeClause(i);
+        }
+        for (int i : negClauses) {
+            p.removeClause(i);
+        }
+        p.eliminated[v] = true;
+        p.eliminatedVars++;
+        return true;
+    }
+
+    /*
+     * Build the resolvent on v of c, which contains v, and d, which
+     * contains ~v, in resolvent.
+     * Returns false iff the resolvent is a tautology.
+     */
+    private boolean resolve(int[] c, int[] d, int v) {
+        stamp++;
+        resolvent.clear();
+        for (int l : c) {
+            if (Lit.var(l) != v) {
+                mark[l] = stamp;
+                resolvent.push(l);
+            }
+        }
+        for (int l : d) {
+            if (Lit.var(l) == v || mark[l] == stamp) continue;
+            if (mark[Lit.not(l)] == stamp) return false;
+            resolvent.push(l);
+        }
+        return true;
+    }
+
+    private int occurrences(int v) {
+        return p.occurs[Lit.pos(v)].size() + p.occurs[Lit.neg(v)].size();
+    }
+}
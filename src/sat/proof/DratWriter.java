@@ -0,0 +1,138 @@
+package sat.proof;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import sat.io.ByteEncoding;
+import sat.solver.Lit;
+
+/**
+ * Writes a proof in DRAT format, as read by drat-trim and other standard
+ * checkers, for the DIMACS file of the original problem (variable v is
+ * numbered v+1). The text format has one line per step, "l1 .. ln 0" for an
+ * added clause and "d l1 .. ln 0" for a deleted one. The binary format
+ * has one byte 'a' or 'd' per step, then each literal, variable x with
+ * sign s, as the variable-length unsigned integer 2x+s (seven bits per
+ * byte, least significant first, high bit set on all bytes but the last),
+ * then a 0 byte.
+ *
+ * Steps are encoded into a direct buffer, written to the channel only
+ * when it fills, so that logging costs little more than the encoding.
+ * Write errors during the solve surface as UncheckedIOException.
+ */
+public class DratWriter implements Proof, Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // room for one step marker and one literal in either format
+    private static final int MAX_ITEM = 16;
+
+    private final WritableByteChannel channel;
+    private final boolean binary;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long added;
+    private long deleted;
+
+    /**
+     * Create a writer of the given format onto channel, which close closes.
+     */
+    public DratWriter(WritableByteChannel channel, boolean binary) {
+        this.channel = channel;
+        this.binary = binary;
+    }
+
+    /**
+     * Create a writer of the given format onto a new or truncated file.
+     * @throws IOException if the file cannot be opened for writing
+     */
+    public static DratWriter open(String filePath, boolean binary) throws IOException {
+        return new DratWriter(FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), binary);
+    }
+
+    public void addClause(int[] lits, int from, int len) {
+        added++;
+        step('a', lits, from, len);
+    }
+
+    public void deleteClause(int[] lits, int from, int len) {
+        deleted++;
+        step('d', lits, from, len);
+    }
+
+    /**
+     * @return number of clauses added so far
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    /**
+     * @return number of clauses deleted so far
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Write out the buffered steps.
+     * @throws IOException if the channel fails
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write out the buffered steps and close the channel.
+     * @throws IOException if the channel fails
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void step(char kind, int[] lits, int from, int len) {
+        try {
+            reserve();
+            if (binary) {
+                buffer.put((byte) kind);
+            } else if (kind == 'd') {
+                buffer.put((byte) 'd').put((byte) ' ');
+            }
+            for (int k = from; k < from + len; k++) {
+                reserve();
+                if (binary) {
+                    // Lit's 2v+s with DIMACS variable v+1 is 2(v+1)+s
+                    ByteEncoding.putVarint(buffer, lits[k] + 2);
+                } else {
+                    int x = Lit.var(lits[k]) + 1;
+                    ByteEncoding.putInt(buffer, Lit.isNeg(lits[k]) ? -x : x);
+                    buffer.put((byte) ' ');
+                }
+            }
+            reserve();
+            if (binary) {
+                buffer.put((byte) 0);
+            } else {
+                buffer.put((byte) '0').put((byte) '\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write proof", e);
+        }
+    }
+
+    private void reserve() throws IOException {
+        if (buffer.remaining() < MAX_ITEM) flush();
+    }
+}
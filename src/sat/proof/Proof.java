@@ -0,0 +1,23 @@
+package sat.proof;
+
+/**
+ * Receiver of the steps of a clausal proof: the clauses a solver derives
+ * and the clauses it deletes, in order, with literals encoded as in
+ * sat.solver.Lit. Every added clause must follow from the clauses present
+ * at that point by unit propagation (RUP) or be a resolution asymmetric
+ * tautology (RAT) on its first literal; an added empty clause ends a
+ * refutation.
+ *
+ * An instance serves a single solver, from one thread.
+ */
+public interface Proof {
+    /**
+     * Record the derivation of the clause lits[from..from+len).
+     */
+    void addClause(int[] lits, int from, int len);
+
+    /**
+     * Record the deletion of the clause lits[from..from+len).
+     */
+    void deleteClause(int[] lits, int from, int len);
+}
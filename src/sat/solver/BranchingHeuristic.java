@@ -0,0 +1,97 @@
+package sat.solver;
+
+/**
+ * Strategy that chooses the decision literal whenever the solver has no
+ * more propagations to make. The solver reports the events a heuristic may
+ * want to track incrementally; a heuristic overrides only the ones it uses.
+ *
+ * An instance serves a single solver.
+ */
+public interface BranchingHeuristic {
+    /**
+     * Make a heuristic from its name: "vsids", "dlis", "static-moms",
+     * "jw" (Jeroslow-Wang) or "random", the last optionally with a seed as
+     * in "random:42".
+     * @return a new heuristic
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static BranchingHeuristic named(String name) {
+        String n = name.trim().toLowerCase();
+        if (n.equals("vsids")) return new VsidsHeuristic();
+        if (n.equals("static-moms")) return new StaticMomsHeuristic();
+        if (n.equals("jw")) return new JeroslowWangHeuristic();
+        if (n.equals("dlis")) return new DlisHeuristic();
+        if (n.equals("random")) return new RandomHeuristic(0);
+        if (n.startsWith("random:")) {
+            try {
+                return new RandomHeuristic(Long.parseLong(n.substring(7)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad seed in heuristic " + name, e);
+            }
+        }
+        throw new IllegalArgumentException("unknown heuristic " + name);
+    }
+
+    /**
+     * Called at the start of solve, once the problem clauses are known.
+     * May read the clauses through solver.numClauses and solver.clause.
+     */
+    void init(Solver solver);
+
+    /**
+     * @return true iff the heuristic reads the solver's counts of
+     * unsatisfied problem clauses, which the solver then maintains during
+     * search; only heuristics of this package can read them. False by
+     * default, as counting visits every occurrence of each assigned literal.
+     */
+    default boolean usesActiveCounts() {
+        return false;
+    }
+
+    /**
+     * Called when the solver gains variables after init, up to
+     * solver.numVars(); the new variables are unassigned. By default the
+     * heuristic starts over with init.
+     */
+    default void varsAdded(Solver solver) {
+        init(solver);
+    }
+
+    /**
+     * @return an unassigned literal to assert as the next decision, or
+     * Lit.UNDEF if every variable is assigned
+     */
+    int pickBranchLit();
+
+    /**
+     * Called when the literal l, which was true, becomes unassigned on
+     * backtracking.
+     */
+    default void unassigned(int l) {
+    }
+
+    /**
+     * Called during conflict analysis for each variable involved in the
+     * conflict.
+     */
+    default void bump(int v) {
+    }
+
+    /**
+     * Called once after each conflict has been analyzed.
+     */
+    default void conflict() {
+    }
+
+    /**
+     * Called when the solver adds the clause lits[from..from+len) after init.
+     */
+    default void clauseAdded(int[] lits, int from, int len) {
+    }
+
+    /**
+     * Called when the solver deletes the clause lits[from..from+len).
+     */
+    default void clauseRemoved(int[] lits, int from, int len) {
+    }
+}
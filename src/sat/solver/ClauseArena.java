@@ -0,0 +1,270 @@
+package sat.solver;
+
+import java.util.Arrays;
+
+import sat.env.Variable;
+import sat.formula.Clause;
+import sat.formula.Formula;
+import sat.formula.Literal;
+import sat.formula.LiteralRegistry;
+import sat.formula.NegLiteral;
+import sat.formula.PosLiteral;
+
+/**
+ * A CNF formula in compact integer form. Variables are dense ints
+ * 0..numVars()-1 and literals are encoded as in {@link Lit}. The literals of
+ * all clauses are stored back to back in one int array, with an offset table
+ * giving where each clause starts, so a formula costs about one int per
+ * literal plus one per clause.
+ *
+ * Clauses can only be appended; the arena is not thread-safe while it grows,
+ * but may be shared read-only afterwards.
+ */
+public class ClauseArena {
+    // scratch for fromFormula, indexed by registry id, per thread; all -1 between calls
+    private static final ThreadLocal<int[]> LOCAL = ThreadLocal.withInitial(() -> new int[0]);
+
+    private int numVars;
+    private int[] lits;
+    private int numLits;
+    // starts[i] = offset of clause i in lits; starts[numClauses] == numLits
+    private int[] starts;
+    private int numClauses;
+    // variables[v] = the Variable that v stands for, or null if named by DIMACS number
+    private Variable[] variables;
+
+    /*
+     * Rep invariant:
+     *     lits, starts != null
+     *     starts[0] == 0, starts is non-decreasing, starts[numClauses] == numLits
+     *     every literal in lits[0..numLits) names a variable below numVars
+     *
+     * Abstraction function:
+     *     the conjunction over i < numClauses of the disjunction of
+     *     lits[starts[i]..starts[i+1]); variable v is variables[v] if set,
+     *     otherwise the variable named by the DIMACS number v+1
+     */
+
+    /**
+     * Create an empty arena.
+     */
+    public ClauseArena() {
+        this(0, 16, 64);
+    }
+
+    /**
+     * Create an empty arena presized for the given number of variables,
+     * clauses and literals. Sizes are hints; the arena grows as needed.
+     */
+    public ClauseArena(int numVars, int expectedClauses, int expectedLits) {
+        this.numVars = numVars;
+        lits = new int[Math.max(expectedLits, 4)];
+        starts = new int[Math.max(expectedClauses, 4) + 1];
+    }
+
+    /**
+     * Append a clause. Variables beyond numVars() extend the variable range.
+     */
+    public void addClause(int... clause) {
+        addClause(clause, 0, clause.length);
+    }
+
+    /**
+     * Append the clause buf[from..from+len).
+     */
+    public void addClause(int[] buf, int from, int len) {
+        if (numLits + len > lits.length) {
+            lits = Arrays.copyOf(lits, Math.max(numLits + len, lits.length << 1));
+        }
+        if (numClauses + 2 > starts.length) {
+            starts = Arrays.copyOf(starts, starts.length << 1);
+        }
+        for (int k = 0; k < len; k++) {
+            int l = buf[from + k];
+            if (Lit.var(l) >= numVars) {
+                numVars = Lit.var(l) + 1;
+            }
+            lits[numLits++] = l;
+        }
+        starts[++numClauses] = numLits;
+    }
+
+    /**
+     * Append all clauses of other, in order, after the clauses of this.
+     */
+    public void addAll(ClauseArena other) {
+        if (numLits + other.numLits > lits.length) {
+            lits = Arrays.copyOf(lits, Math.max(numLits + other.numLits, lits.length << 1));
+        }
+        if (numClauses + other.numClauses + 1 > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(numClauses + other.numClauses + 1, starts.length << 1));
+        }
+        System.arraycopy(other.lits, 0, lits, numLits, other.numLits);
+        for (int i = 1; i <= other.numClauses; i++) {
+            starts[numClauses + i] = numLits + other.starts[i];
+        }
+        numLits += other.numLits;
+        numClauses += other.numClauses;
+        ensureVars(other.numVars);
+    }
+
+    /**
+     * Make sure variables 0..n-1 are in range, even if no clause mentions them.
+     */
+    public void ensureVars(int n) {
+        if (n > numVars) numVars = n;
+    }
+
+    /**
+     * @return number of variables
+     */
+    public int numVars() {
+        return numVars;
+    }
+
+    /**
+     * @return number of clauses
+     */
+    public int numClauses() {
+        return numClauses;
+    }
+
+    /**
+     * @return total number of literal occurrences over all clauses
+     */
+    public int numLits() {
+        return numLits;
+    }
+
+    /**
+     * @return offset in literals() at which clause i starts
+     */
+    public int start(int i) {
+        return starts[i];
+    }
+
+    /**
+     * @return offset in literals() just past the end of clause i
+     */
+    public int end(int i) {
+        return starts[i + 1];
+    }
+
+    /**
+     * @return number of literals of clause i
+     */
+    public int clauseSize(int i) {
+        return starts[i + 1] - starts[i];
+    }
+
+    /**
+     * @return the k-th literal of clause i
+     */
+    public int get(int i, int k) {
+        return lits[starts[i] + k];
+    }
+
+    /**
+     * The shared backing array, for inner loops. Clause i occupies
+     * [start(i), end(i)). Must not be modified by clients.
+     * @return the literal arena
+     */
+    public int[] literals() {
+        return lits;
+    }
+
+    /**
+     * @return a copy of clause i
+     */
+    public int[] clause(int i) {
+        return Arrays.copyOfRange(lits, starts[i], starts[i + 1]);
+    }
+
+    /**
+     * @return the variable that v stands for
+     */
+    public Variable variable(int v) {
+        if (variables != null && v < variables.length && variables[v] != null) {
+            return variables[v];
+        }
+        return new Variable(String.valueOf(v + 1));
+    }
+
+    /**
+     * Convert a formula, numbering its variables densely in order of first
+     * occurrence. variable(v) gives back the original variables.
+     * @return the arena form of formula
+     */
+    public static ClauseArena fromFormula(Formula formula) {
+        // local[id] = dense number of the variable with registry id, or -1
+        int[] local = LOCAL.get();
+        IntVec order = new IntVec();
+        ClauseArena arena = new ClauseArena(0, formula.getSize(), 4 * formula.getSize());
+        IntVec buf = new IntVec();
+        try {
+            for (Clause clause : formula.getClauses()) {
+                buf.clear();
+                for (Literal l : clause) {
+                    int id = l.getVariableId();
+                    if (id >= local.length) {
+                        int old = local.length;
+                        local = Arrays.copyOf(local, Math.max(id + 1, 2 * old));
+                        Arrays.fill(local, old, local.length, -1);
+                        LOCAL.set(local);
+                    }
+                    if (local[id] < 0) {
+                        local[id] = order.size();
+                        order.push(id);
+                    }
+                    buf.push(Lit.make(local[id], l instanceof NegLiteral));
+                }
+                arena.addClause(buf.data, 0, buf.size);
+            }
+        } finally {
+            // leave the scratch array all -1 again, at the cost of this formula only
+            for (int v = 0; v < order.size(); v++) {
+                local[order.get(v)] = -1;
+            }
+        }
+        arena.variables = new Variable[order.size()];
+        for (int v = 0; v < order.size(); v++) {
+            arena.variables[v] = LiteralRegistry.variable(order.get(v));
+        }
+        return arena;
+    }
+
+    /**
+     * @return the formula this arena represents, over the variables given
+     * by variable(v)
+     */
+    public Formula toFormula() {
+        Formula result = new Formula();
+        for (int i = 0; i < numClauses; i++) {
+            Clause clause = new Clause();
+            for (int k = starts[i]; k < starts[i + 1]; k++) {
+                int l = lits[k];
+                Variable v = variable(Lit.var(l));
+                clause = clause.add(Lit.isNeg(l) ? NegLiteral.make(v) : PosLiteral.make(v));
+                if (clause == null) break;
+            }
+            // tautologies are dropped, as Clause cannot represent them
+            if (clause != null) {
+                result = result.addClause(clause);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ClauseArena[");
+        for (int i = 0; i < numClauses; i++) {
+            sb.append(i == 0 ? "" : ", ").append('(');
+            for (int k = starts[i]; k < starts[i + 1]; k++) {
+                sb.append(k == starts[i] ? "" : " ").append(Lit.toString(lits[k]));
+            }
+            sb.append(')');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,25 @@
+package sat.solver;
+
+/**
+ * Link through which a CDCL solver exchanges learned clauses with other
+ * solvers of the same problem. The solver offers every clause it learns,
+ * and at every restart, once back at the top level, lets the link add the
+ * clauses learned elsewhere with Solver.addLearntClause.
+ *
+ * An instance serves a single solver; exportClause and importClauses are
+ * called from that solver's thread only.
+ */
+public interface ClauseSharing {
+    /**
+     * Called with each clause the solver learns, lits[0..len), whose first
+     * literal is the asserting one. The array is reused afterwards, so a
+     * kept clause must be copied.
+     */
+    void exportClause(int[] lits, int len, int lbd);
+
+    /**
+     * Called at every restart, at the top level, to add clauses learned by
+     * other solvers through solver.addLearntClause.
+     */
+    void importClauses(Solver solver);
+}
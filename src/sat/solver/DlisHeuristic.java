@@ -0,0 +1,85 @@
+package sat.solver;
+
+import java.util.Arrays;
+
+/**
+ * Dynamic Largest Individual Sum: decide the literal that occurs in the
+ * most problem clauses not yet satisfied, as counted by the solver (see
+ * usesActiveCounts).
+ *
+ * Unassigned variables wait in an indexed heap keyed on a bound of their
+ * score, the larger count of their two literals. Counts fall as clauses are
+ * satisfied, which leaves keys too high; they are corrected lazily, when a
+ * variable reaches the top with a key above its score. Counts rise only as
+ * clauses become unsatisfied on backtracking; the solver reports those
+ * variables, whose keys are raised before the next decision.
+ */
+public class DlisHeuristic implements BranchingHeuristic {
+    private Solver solver;
+    // key[v] = score of v when last computed
+    private double[] key;
+    private IndexedHeap order;
+
+    /*
+     * Rep invariant (after init):
+     *     every unassigned variable is in order
+     *     after the raised variables are rekeyed, key[v] >= score(v) for all v
+     */
+
+    public boolean usesActiveCounts() {
+        return true;
+    }
+
+    public void init(Solver solver) {
+        this.solver = solver;
+        int n = solver.numVars();
+        key = new double[n];
+        order = new IndexedHeap(n, key);
+        for (int v = 0; v < n; v++) {
+            order.insert(v);
+        }
+    }
+
+    public void varsAdded(Solver solver) {
+        int old = key.length;
+        int n = solver.numVars();
+        key = Arrays.copyOf(key, n);
+        order.grow(n, key);
+        for (int v = old; v < n; v++) {
+            order.insert(v);
+        }
+    }
+
+    /**
+     * Decide the unassigned variable with the highest score, in the
+     * polarity with the higher count (positive on ties).
+     */
+    public int pickBranchLit() {
+        for (int v = solver.nextRaised(); v >= 0; v = solver.nextRaised()) {
+            key[v] = score(v);
+            order.increased(v);
+        }
+        while (!order.isEmpty()) {
+            int v = order.removeMax();
+            if (solver.value(v) != Solver.UNDEF) continue;
+            int score = score(v);
+            if (score < key[v]) {
+                // stale: put back with its true score
+                key[v] = score;
+                order.insert(v);
+                continue;
+            }
+            return Lit.make(v, solver.activeCount(Lit.neg(v)) > solver.activeCount(Lit.pos(v)));
+        }
+        return Lit.UNDEF;
+    }
+
+    public void unassigned(int l) {
+        int v = Lit.var(l);
+        if (!order.contains(v)) order.insert(v);
+    }
+
+    private int score(int v) {
+        return Math.max(solver.activeCount(Lit.pos(v)), solver.activeCount(Lit.neg(v)));
+    }
+}
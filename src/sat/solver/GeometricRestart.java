@@ -0,0 +1,39 @@
+package sat.solver;
+
+/**
+ * Restart after first conflicts, then after factor times as many
+ * conflicts as the previous run each time.
+ */
+public class GeometricRestart implements RestartPolicy {
+    private final double factor;
+    private double limit;
+    private long conflicts;
+
+    /**
+     * Restart after 100 conflicts, growing by 1.5, as in MiniSat 1.14.
+     */
+    public GeometricRestart() {
+        this(100, 1.5);
+    }
+
+    /**
+     * Requires: first > 0, factor >= 1
+     */
+    public GeometricRestart(int first, double factor) {
+        this.limit = first;
+        this.factor = factor;
+    }
+
+    public void conflict(int lbd) {
+        conflicts++;
+    }
+
+    public boolean shouldRestart() {
+        return conflicts >= limit;
+    }
+
+    public void restarted() {
+        conflicts = 0;
+        limit *= factor;
+    }
+}
@@ -0,0 +1,60 @@
+package sat.solver;
+
+/**
+ * Glucose-style dynamic restarts: restart when the clauses learned recently
+ * are worse than usual, i.e. when the average LBD of the last window
+ * conflicts, scaled by margin, exceeds the average LBD over the whole run.
+ * After a restart, a full window of new conflicts is needed before the next.
+ */
+public class GlucoseRestart implements RestartPolicy {
+    private final double margin;
+    // LBDs of the last window conflicts, as a ring buffer
+    private final int[] recent;
+    private int recentCount;
+    private int next;
+    private long recentSum;
+
+    private long totalSum;
+    private long totalCount;
+
+    /**
+     * Window 50 and margin 0.8, as in Glucose.
+     */
+    public GlucoseRestart() {
+        this(50, 0.8);
+    }
+
+    /**
+     * Requires: window > 0, 0 < margin <= 1
+     */
+    public GlucoseRestart(int window, double margin) {
+        this.recent = new int[window];
+        this.margin = margin;
+    }
+
+    public void conflict(int lbd) {
+        totalSum += lbd;
+        totalCount++;
+        if (recentCount == recent.length) {
+            recentSum -= recent[next];
+        } else {
+            recentCount++;
+        }
+        recent[next] = lbd;
+        recentSum += lbd;
+        next = (next + 1) % recent.length;
+    }
+
+    public boolean shouldRestart() {
+        if (recentCount < recent.length) return false;
+        double fast = (double) recentSum / recentCount;
+        double slow = (double) totalSum / totalCount;
+        return fast * margin > slow;
+    }
+
+    public void restarted() {
+        recentCount = 0;
+        recentSum = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,153 @@
+package sat.solver;
+
+import java.util.Arrays;
+
+/**
+ * A binary max-heap of variables 0..n-1 ordered by an external array of
+ * scores, with a position index so that membership tests and updates
+ * after a score change take O(1) and O(log n) time.
+ * Ties are broken in favour of the smaller variable.
+ */
+public final class IndexedHeap {
+    private double[] scores;
+    private int[] heap;
+    private int size;
+    // indices[v] = position of v in heap, or -1 if v is not in the heap
+    private int[] indices;
+
+    /*
+     * Rep invariant:
+     *     heap[0..size) holds distinct variables, and indices[heap[i]] == i
+     *     for every i > 0, heap[(i-1)/2] is not below heap[i] in the order
+     */
+
+    /**
+     * Create an empty heap over variables 0..n-1 ordered by scores,
+     * which the caller keeps updating; after raising or lowering the score
+     * of a variable in the heap, call increased or decreased.
+     */
+    public IndexedHeap(int n, double[] scores) {
+        this.scores = scores;
+        heap = new int[Math.max(n, 1)];
+        indices = new int[n];
+        Arrays.fill(indices, -1);
+    }
+
+    /**
+     * Extend the heap to variables 0..n-1, ordered from now on by scores,
+     * which must hold the current scores of the old variables. The new
+     * variables are not in the heap.
+     * Requires: n is at least the current number of variables
+     */
+    public void grow(int n, double[] scores) {
+        int old = indices.length;
+        this.scores = scores;
+        heap = Arrays.copyOf(heap, Math.max(n, 1));
+        indices = Arrays.copyOf(indices, n);
+        Arrays.fill(indices, old, n, -1);
+    }
+
+    /**
+     * @return true iff v is in the heap
+     */
+    public boolean contains(int v) {
+        return indices[v] >= 0;
+    }
+
+    /**
+     * @return true iff the heap is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of variables in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add v to the heap. Requires: !contains(v)
+     */
+    public void insert(int v) {
+        heap[size] = v;
+        indices[v] = size;
+        up(size++);
+    }
+
+    /**
+     * Requires: !isEmpty()
+     * @return the variable with the highest score, which is removed
+     */
+    public int removeMax() {
+        int top = heap[0];
+        int last = heap[--size];
+        indices[top] = -1;
+        if (size > 0) {
+            heap[0] = last;
+            indices[last] = 0;
+            down(0);
+        }
+        return top;
+    }
+
+    /**
+     * Restore the order after the score of v was raised. No effect if v is
+     * not in the heap.
+     */
+    public void increased(int v) {
+        if (indices[v] >= 0) up(indices[v]);
+    }
+
+    /**
+     * Restore the order after the score of v was lowered. No effect if v is
+     * not in the heap.
+     */
+    public void decreased(int v) {
+        if (indices[v] >= 0) down(indices[v]);
+    }
+
+    /**
+     * Remove every variable.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            indices[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private boolean above(int v, int w) {
+        return scores[v] > scores[w] || (scores[v] == scores[w] && v < w);
+    }
+
+    private void up(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (!above(v, heap[parent])) break;
+            heap[i] = heap[parent];
+            indices[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        indices[v] = i;
+    }
+
+    private void down(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && above(heap[child + 1], heap[child])) child++;
+            if (!above(heap[child], v)) break;
+            heap[i] = heap[child];
+            indices[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        indices[v] = i;
+    }
+}
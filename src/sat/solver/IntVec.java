@@ -0,0 +1,106 @@
+package sat.solver;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of primitive ints, used instead of List&lt;Integer&gt;
+ * in the solver's inner loops to avoid boxing.
+ * The backing array and size are exposed to package code so hot loops
+ * can iterate and compact in place.
+ */
+public final class IntVec {
+    /*
+     * Rep invariant:
+     *     data != null
+     *     0 <= size <= data.length
+     */
+    int[] data;
+    int size;
+
+    public IntVec() {
+        this(4);
+    }
+
+    public IntVec(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Append x to the end of this vector.
+     */
+    public void push(int x) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size << 1);
+        }
+        data[size++] = x;
+    }
+
+    /**
+     * Requires: this is non-empty
+     * @return the last element, which is removed
+     */
+    public int pop() {
+        return data[--size];
+    }
+
+    /**
+     * Requires: this is non-empty
+     * @return the last element
+     */
+    public int last() {
+        return data[size - 1];
+    }
+
+    /**
+     * Requires: 0 <= i < size()
+     * @return the element at index i
+     */
+    public int get(int i) {
+        return data[i];
+    }
+
+    /**
+     * Requires: 0 <= i < size()
+     */
+    public void set(int i, int x) {
+        data[i] = x;
+    }
+
+    /**
+     * @return number of elements in this
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if this contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Drop all elements from index n onwards.
+     * Requires: 0 <= n <= size()
+     */
+    public void shrink(int n) {
+        size = n;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the elements as an exactly sized array
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,16 @@
+package sat.solver;
+
+/**
+ * Two-sided Jeroslow-Wang: each occurrence of a literal in a clause of size
+ * k scores 2^-k, so short clauses dominate; decide the variable with the
+ * highest combined score of its two literals, in its better polarity.
+ */
+public class JeroslowWangHeuristic extends OccurrenceHeuristic {
+    protected double weight(int size) {
+        return Math.scalb(1.0, -Math.min(size, 1000));
+    }
+
+    protected double combine(double pos, double neg) {
+        return pos + neg;
+    }
+}
@@ -0,0 +1,78 @@
+package sat.solver;
+
+/**
+ * Static helpers for the integer encoding of literals used by the solver.
+ * Variables are dense ints 0..n-1; the positive literal of variable v is
+ * 2*v and the negative literal is 2*v+1, so negation is a single xor.
+ */
+public final class Lit {
+    /** Literal value that never denotes a real literal. */
+    public static final int UNDEF = -1;
+
+    private Lit() {
+    }
+
+    /**
+     * @return the literal of variable v, negated iff negative is true
+     */
+    public static int make(int v, boolean negative) {
+        return (v << 1) | (negative ? 1 : 0);
+    }
+
+    /**
+     * @return the positive literal of variable v
+     */
+    public static int pos(int v) {
+        return v << 1;
+    }
+
+    /**
+     * @return the negative literal of variable v
+     */
+    public static int neg(int v) {
+        return (v << 1) | 1;
+    }
+
+    /**
+     * @return the variable of literal l
+     */
+    public static int var(int l) {
+        return l >> 1;
+    }
+
+    /**
+     * @return true iff l is a negative literal
+     */
+    public static boolean isNeg(int l) {
+        return (l & 1) != 0;
+    }
+
+    /**
+     * @return the negation of literal l
+     */
+    public static int not(int l) {
+        return l ^ 1;
+    }
+
+    /**
+     * Convert a DIMACS literal (non-zero, 1-based, sign gives polarity).
+     * @return the corresponding solver literal
+     */
+    public static int fromDimacs(int d) {
+        return d > 0 ? pos(d - 1) : neg(-d - 1);
+    }
+
+    /**
+     * @return the DIMACS form of literal l
+     */
+    public static int toDimacs(int l) {
+        return isNeg(l) ? -(var(l) + 1) : var(l) + 1;
+    }
+
+    /**
+     * @return a readable form of l, e.g. "~3" for the negation of variable 3
+     */
+    public static String toString(int l) {
+        return (isNeg(l) ? "~" : "") + var(l);
+    }
+}
@@ -0,0 +1,61 @@
+package sat.solver;
+
+/**
+ * Restart after unit * luby(i) conflicts for the i-th run, where luby is
+ * the sequence 1 1 2 1 1 2 4 1 1 2 1 1 2 4 8 ... of Luby, Sinclair and
+ * Zuckerman, which is within a log factor of the optimal universal
+ * strategy for heavy-tailed run times.
+ */
+public class LubyRestart implements RestartPolicy {
+    private final int unit;
+    private int run = 1;
+    private long conflicts;
+
+    /**
+     * Restart with unit 100, as in MiniSat.
+     */
+    public LubyRestart() {
+        this(100);
+    }
+
+    /**
+     * Requires: unit > 0
+     */
+    public LubyRestart(int unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @return the i-th element (from 1) of the Luby sequence
+     */
+    public static long luby(int i) {
+        // find the smallest complete subsequence, of size 2^(seq+1)-1, holding i
+        long x = i - 1;
+        long size = 1;
+        int seq = 0;
+        while (size < x + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        // descend into the copy of a smaller subsequence that holds x
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return 1L << seq;
+    }
+
+    public void conflict(int lbd) {
+        conflicts++;
+    }
+
+    public boolean shouldRestart() {
+        return conflicts >= unit * luby(run);
+    }
+
+    public void restarted() {
+        run++;
+        conflicts = 0;
+    }
+}
@@ -0,0 +1,16 @@
+package sat.solver;
+
+/**
+ * Never restart.
+ */
+public class NoRestart implements RestartPolicy {
+    public void conflict(int lbd) {
+    }
+
+    public boolean shouldRestart() {
+        return false;
+    }
+
+    public void restarted() {
+    }
+}
@@ -0,0 +1,102 @@
+package sat.solver;
+
+/**
+ * Base class for branching heuristics computed from literal occurrences in
+ * the clause database. Each literal has a score, kept up to date as clauses
+ * are added and deleted, from which subclasses derive a variable score and
+ * a preferred polarity. Unassigned variables wait in an indexed heap keyed
+ * on the variable score, so a decision never rescans the clauses.
+ *
+ * The scores are static with respect to the assignment: they count every
+ * stored clause, including clauses that are currently satisfied, and
+ * change only as clauses are added and deleted. Tracking satisfaction
+ * would require visiting all occurrences of each assigned literal, which
+ * the watched-literal scheme avoids; the solver pays that cost only for
+ * pure-literal detection and for DlisHeuristic, over problem clauses
+ * alone. Subclasses named after dynamic heuristics are therefore called
+ * Static.
+ */
+public abstract class OccurrenceHeuristic implements BranchingHeuristic {
+    private Solver solver;
+    // litScore[l] = sum of weight(size) over the stored clauses containing l
+    protected double[] litScore;
+    private double[] varScore;
+    private IndexedHeap order;
+
+    /*
+     * Rep invariant (after init):
+     *     varScore[v] == combine(litScore[Lit.pos(v)], litScore[Lit.neg(v)])
+     *     every unassigned variable is in order
+     */
+
+    /**
+     * @return the contribution of one occurrence in a clause of the given size
+     */
+    protected abstract double weight(int size);
+
+    /**
+     * @return the score of a variable whose literals score pos and neg
+     */
+    protected abstract double combine(double pos, double neg);
+
+    public void init(Solver solver) {
+        this.solver = solver;
+        int n = solver.numVars();
+        litScore = new double[2 * n];
+        varScore = new double[n];
+        order = new IndexedHeap(n, varScore);
+        for (int i = 0; i < solver.numClauses(); i++) {
+            int[] c = solver.clause(i);
+            double w = weight(c.length);
+            for (int l : c) {
+                litScore[l] += w;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            varScore[v] = combine(litScore[Lit.pos(v)], litScore[Lit.neg(v)]);
+            order.insert(v);
+        }
+    }
+
+    /**
+     * Decide the best unassigned variable, in the polarity with the higher
+     * literal score (positive on ties).
+     */
+    public int pickBranchLit() {
+        while (!order.isEmpty()) {
+            int v = order.removeMax();
+            if (solver.value(v) == Solver.UNDEF) {
+                return Lit.make(v, litScore[Lit.neg(v)] > litScore[Lit.pos(v)]);
+            }
+        }
+        return Lit.UNDEF;
+    }
+
+    public void unassigned(int l) {
+        int v = Lit.var(l);
+        if (!order.contains(v)) order.insert(v);
+    }
+
+    public void clauseAdded(int[] lits, int from, int len) {
+        update(lits, from, len, weight(len));
+    }
+
+    public void clauseRemoved(int[] lits, int from, int len) {
+        update(lits, from, len, -weight(len));
+    }
+
+    private void update(int[] lits, int from, int len, double delta) {
+        if (delta == 0) return;
+        for (int k = from; k < from + len; k++) {
+            int l = lits[k];
+            int v = Lit.var(l);
+            litScore[l] += delta;
+            varScore[v] = combine(litScore[Lit.pos(v)], litScore[Lit.neg(v)]);
+            if (delta > 0) {
+                order.increased(v);
+            } else {
+                order.decreased(v);
+            }
+        }
+    }
+}
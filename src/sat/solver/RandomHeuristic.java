@@ -0,0 +1,66 @@
+package sat.solver;
+
+import java.util.Random;
+
+/**
+ * Decide a uniformly random unassigned variable in a random polarity.
+ * Runs are reproducible for a given seed.
+ *
+ * Candidates are kept in an array set; assigned variables are dropped from
+ * it lazily when drawn and put back when they become unassigned, so a
+ * decision takes O(1) amortized time.
+ */
+public class RandomHeuristic implements BranchingHeuristic {
+    private final Random random;
+
+    private Solver solver;
+    private int[] pool;
+    private int poolSize;
+    // where[v] = position of v in pool, or -1
+    private int[] where;
+
+    /*
+     * Rep invariant (after init):
+     *     pool[0..poolSize) holds distinct variables and where[pool[i]] == i
+     *     every unassigned variable is in pool
+     */
+
+    public RandomHeuristic(long seed) {
+        random = new Random(seed);
+    }
+
+    public void init(Solver solver) {
+        this.solver = solver;
+        int n = solver.numVars();
+        pool = new int[n];
+        where = new int[n];
+        for (int v = 0; v < n; v++) {
+            pool[v] = v;
+            where[v] = v;
+        }
+        poolSize = n;
+    }
+
+    public int pickBranchLit() {
+        while (poolSize > 0) {
+            int i = random.nextInt(poolSize);
+            int v = pool[i];
+            if (solver.value(v) == Solver.UNDEF) {
+                return Lit.make(v, random.nextBoolean());
+            }
+            int last = pool[--poolSize];
+            pool[i] = last;
+            where[last] = i;
+            where[v] = -1;
+        }
+        return Lit.UNDEF;
+    }
+
+    public void unassigned(int l) {
+        int v = Lit.var(l);
+        if (where[v] < 0) {
+            pool[poolSize] = v;
+            where[v] = poolSize++;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package sat.solver;
+
+/**
+ * Strategy that decides when a CDCL search should restart, that is, undo
+ * every decision while keeping learned clauses and heuristic state.
+ * Restarts only apply to Solver.Mode.CDCL; chronological DPLL relies on its
+ * decision stack for completeness.
+ *
+ * An instance serves a single solver.
+ */
+public interface RestartPolicy {
+    /**
+     * Make a policy from its name: "luby", "geometric", "glucose" or "none".
+     * @return a new policy with default parameters
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static RestartPolicy named(String name) {
+        String n = name.trim().toLowerCase();
+        if (n.equals("luby")) return new LubyRestart();
+        if (n.equals("geometric")) return new GeometricRestart();
+        if (n.equals("glucose")) return new GlucoseRestart();
+        if (n.equals("none")) return new NoRestart();
+        throw new IllegalArgumentException("unknown restart policy " + name);
+    }
+
+    /**
+     * Called once after each conflict, with the literal block distance
+     * (number of distinct decision levels) of the clause learned from it.
+     */
+    void conflict(int lbd);
+
+    /**
+     * @return true iff the search should restart before its next decision
+     */
+    boolean shouldRestart();
+
+    /**
+     * Called when the solver restarts.
+     */
+    void restarted();
+}
@@ -0,0 +1,1207 @@
+package sat.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import sat.proof.Proof;
+
+/**
+ * A SAT search engine over an integer clause database.
+ * Literals use the encoding of {@link Lit}. Boolean constraint propagation
+ * uses two watched literals per clause, so assigning a literal only visits
+ * the clauses that currently watch its negation, instead of every clause.
+ *
+ * Typical use: create with the number of variables, add clauses with
+ * addClause, call solve, then read the model with value.
+ *
+ * The solver is incremental: clauses and variables may be added between
+ * calls of solve, which keep the learned clauses and the heuristic state,
+ * and solve accepts assumptions, literals that hold for that call only.
+ * When solve fails under assumptions, failedAssumptions tells which of
+ * them were used to refute the problem.
+ */
+public class Solver {
+    /**
+     * Search algorithms offered by the solver.
+     * DPLL backtracks chronologically and learns nothing from conflicts;
+     * CDCL analyzes each conflict to a first-UIP learned clause and
+     * backjumps non-chronologically.
+     */
+    public enum Mode {
+        DPLL, CDCL
+    }
+
+    /** Value of an unassigned variable or literal. */
+    public static final byte UNDEF = 0;
+    /** Value of a literal that is true under the current assignment. */
+    public static final byte TRUE = 1;
+    /** Value of a literal that is false under the current assignment. */
+    public static final byte FALSE = -1;
+
+    /** Reason of a decision or of a unit found at the top level. */
+    static final int NO_REASON = -1;
+    /** Result of propagate when no clause became falsified. */
+    static final int NO_CONFLICT = -1;
+
+    // header flags stored above the clause size
+    private static final int LEARNT = 1 << 30;
+    private static final int DELETED = 1 << 29;
+    private static final int SIZE_MASK = DELETED - 1;
+
+    // learned clauses are reduced after FIRST_REDUCE conflicts, then at intervals growing by REDUCE_INC
+    private static final int FIRST_REDUCE = 2000;
+    private static final int REDUCE_INC = 300;
+    // learned clauses with at most this LBD ("glue" clauses) are never deleted
+    private static final int GLUE_LBD = 2;
+    private static final float CLAUSE_DECAY = 0.999f;
+
+    private int numVars;
+
+    /*
+     * Clause database: one flat arena. A clause is referred to by the offset
+     * ref of its header; mem[ref] & SIZE_MASK is its size and
+     * mem[ref+1..ref+size] are its literals, the first two of which are
+     * watched. A learned clause has the LEARNT flag in its header and two
+     * more words in front of it: mem[ref-2] is its LBD and mem[ref-1] holds
+     * the bits of its float activity.
+     */
+    private int[] mem = new int[1024];
+    private int memSize;
+    // words of mem taken by deleted clauses, reclaimed by compact
+    private int wasted;
+    // references of the problem clauses, in order of addition
+    private final IntVec clauseRefs = new IntVec();
+    // references of the learned clauses
+    private final IntVec learnts = new IntVec();
+    // activity added to a learned clause each time it takes part in conflict analysis
+    private float clauseInc = 1;
+    // number of conflicts at which learned clauses are next reduced
+    private long nextReduce = FIRST_REDUCE;
+
+    // watches[l] = references of the clauses in which l is one of the two watched literals
+    private IntVec[] watches;
+
+    // assignment state, indexed by variable
+    private byte[] assigns;
+    private int[] level;
+    private int[] reason;
+
+    // assignment trail in chronological order, with the start index of each decision level
+    private int[] trail;
+    private int trailSize;
+    private int qhead;
+    private final IntVec trailLim = new IntVec();
+
+    // false once an empty clause has been derived at the top level
+    private boolean ok = true;
+    // assumptions of the current solve call; decision level i+1 is opened by assumptions[i]
+    private int[] assumptions = new int[0];
+    // failed assumptions of the last solve call that returned false
+    private final IntVec core = new IntVec();
+    // set, possibly from another thread, to make solve give up
+    private volatile boolean interrupted;
+
+    private Mode mode = Mode.DPLL;
+    private BranchingHeuristic heuristic = new VsidsHeuristic();
+    // true once the heuristic has been initialized for this problem
+    private boolean heuristicReady;
+    private RestartPolicy restartPolicy = new LubyRestart();
+    // exchange of learned clauses with other solvers, or null
+    private ClauseSharing sharing;
+    // receiver of the derived and deleted clauses, or null
+    private Proof proof;
+    // scratch buffer for the decision clauses of DPLL proofs
+    private final IntVec proofBuf = new IntVec();
+
+    /*
+     * Counts of the unsatisfied problem clauses of each literal, for
+     * pure-literal detection (see setPureLiterals) and for heuristics whose
+     * usesActiveCounts is true. Only problem clauses count: learned clauses
+     * are implied by them, so a literal pure in the problem clauses can be
+     * assumed without losing models.
+     * active == null while counting is off or not yet initialized.
+     */
+    private boolean pureLiterals;
+    // occurs[l] = indices in clauseRefs of the problem clauses containing l
+    private IntVec[] occurs;
+    // active[l] = number of problem clauses containing l with no true literal
+    private int[] active;
+    // trueCount[i] = number of true literals in problem clause i
+    private int[] trueCount;
+    // literals l that were pure when pushed, checked before each decision; each at most once
+    private final IntVec pureCandidates = new IntVec();
+    // candidate[l] iff l is in pureCandidates
+    private boolean[] candidate;
+    // variables with a literal whose active count rose since nextRaised last returned them
+    private final IntVec raisedVars = new IntVec();
+    // raised[v] iff v is in raisedVars; null unless the heuristic uses the counts
+    private boolean[] raised;
+
+    // search statistics
+    private long decisions;
+    private long conflicts;
+    private long propagations;
+    private long restarts;
+    private long reductions;
+    private long deletedClauses;
+    private long pureAssignments;
+
+    // scratch marks used by conflict analysis, indexed by variable; all false between calls
+    private boolean[] seen;
+    // scratch buffer used by addClause
+    private final IntVec addBuf = new IntVec();
+    // levelStamp[d] == stamp iff level d was already counted by the current lbd call
+    private int[] levelStamp;
+    private int stamp;
+
+    /*
+     * Rep invariant:
+     *     every clause referenced by clauseRefs or learnts has size >= 2, is
+     *         not DELETED and appears in exactly the watch lists of its first
+     *         two literals; no watch list holds any other reference
+     *     a learned clause that is the reason of an assigned variable is in learnts
+     *     trail[0..trailSize) holds exactly the assigned literals, each true
+     *     0 <= qhead <= trailSize
+     *     trailLim is non-decreasing and bounded by trailSize; only levels
+     *         opened for an assumption that was already true are empty
+     *     if active != null, trueCount and active count the true literals and
+     *         the unsatisfied clauses of the problem clauses under the trail
+     *
+     * Abstraction function:
+     *     the conjunction of the clauses referenced by clauseRefs and of the literals
+     *     assigned at level 0, over variables 0..numVars-1, together with
+     *     the partial assignment given by the trail
+     */
+
+    /**
+     * Create a solver for a problem with no clauses over variables 0..numVars-1.
+     */
+    public Solver(int numVars) {
+        this.numVars = numVars;
+        watches = new IntVec[2 * numVars];
+        for (int l = 0; l < watches.length; l++) {
+            watches[l] = new IntVec();
+        }
+        assigns = new byte[numVars];
+        level = new int[numVars];
+        reason = new int[numVars];
+        trail = new int[numVars];
+        seen = new boolean[numVars];
+        levelStamp = new int[numVars + 1];
+    }
+
+    /**
+     * Make sure variables 0..n-1 exist, so that clauses over new variables
+     * can be added between calls of solve. The new variables are unassigned.
+     */
+    public void ensureVars(int n) {
+        if (n <= numVars) return;
+        int old = numVars;
+        numVars = n;
+        watches = Arrays.copyOf(watches, 2 * n);
+        for (int l = 2 * old; l < watches.length; l++) {
+            watches[l] = new IntVec();
+        }
+        assigns = Arrays.copyOf(assigns, n);
+        level = Arrays.copyOf(level, n);
+        reason = Arrays.copyOf(reason, n);
+        trail = Arrays.copyOf(trail, n);
+        seen = Arrays.copyOf(seen, n);
+        levelStamp = Arrays.copyOf(levelStamp, n + 1);
+        // occurrence counts are rebuilt by the next solve
+        active = null;
+        if (heuristicReady) heuristic.varsAdded(this);
+    }
+
+    /**
+     * Select the search algorithm used by solve. The default is DPLL.
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Select the strategy that picks decision literals. The default is
+     * VsidsHeuristic. Must be called before solve.
+     */
+    public void setHeuristic(BranchingHeuristic heuristic) {
+        this.heuristic = heuristic;
+        heuristicReady = false;
+        // counts are rebuilt, and all reported as raised, for the new heuristic
+        active = null;
+    }
+
+    /**
+     * Select when CDCL search restarts. The default is LubyRestart.
+     * Must be called before solve.
+     */
+    public void setRestartPolicy(RestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy;
+    }
+
+    /**
+     * Exchange learned clauses with other solvers of the same problem
+     * through sharing, in CDCL mode; null (the default) disables sharing.
+     * Must be called before solve.
+     */
+    public void setClauseSharing(ClauseSharing sharing) {
+        this.sharing = sharing;
+    }
+
+    /**
+     * Log every clause the search derives or deletes to proof, or stop
+     * logging if it is null. CDCL logs its learned clauses; DPLL logs, at
+     * each conflict and backtrack, the clause of its negated decisions,
+     * and suspends pure-literal assignment, whose decisions no clause
+     * justifies. Refuting the problem without assumptions ends the proof
+     * with the empty clause. Clauses imported through ClauseSharing are not
+     * justified by this solver's proof, so sharing must be off.
+     */
+    public void setProof(Proof proof) {
+        this.proof = proof;
+    }
+
+    /**
+     * Enable or disable pure-literal assignment during search. When enabled,
+     * the solver keeps, for every literal, the number of problem clauses
+     * containing it that are not yet satisfied, and before each decision
+     * assigns a literal whose negation occurs in no such clause. In DPLL
+     * mode the other phase of such a literal is never tried. Counting costs
+     * a visit of every occurrence of each assigned literal, so the default
+     * is off.
+     */
+    public void setPureLiterals(boolean enabled) {
+        pureLiterals = enabled;
+        active = null;
+    }
+
+    /**
+     * Ask solve to stop as soon as possible. May be called from any thread,
+     * before or during solve; the request stays in effect for every later
+     * call of solve.
+     */
+    public void interrupt() {
+        interrupted = true;
+    }
+
+    /**
+     * @return number of restarts performed so far
+     */
+    public long getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * @return number of decisions made so far
+     */
+    public long getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * @return number of conflicts met so far
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return number of assignments propagated so far
+     */
+    public long getPropagations() {
+        return propagations;
+    }
+
+    /**
+     * @return number of times the learned clauses were reduced so far
+     */
+    public long getReductions() {
+        return reductions;
+    }
+
+    /**
+     * @return number of learned clauses deleted so far
+     */
+    public long getDeletedClauses() {
+        return deletedClauses;
+    }
+
+    /**
+     * @return number of pure literals assigned during search so far
+     */
+    public long getPureAssignments() {
+        return pureAssignments;
+    }
+
+    /**
+     * @return number of variables of this problem
+     */
+    public int numVars() {
+        return numVars;
+    }
+
+    /**
+     * @return number of problem clauses stored with watches (units and
+     * clauses satisfied at the top level are not stored)
+     */
+    public int numClauses() {
+        return clauseRefs.size();
+    }
+
+    /**
+     * @return number of learned clauses currently kept
+     */
+    public int numLearnts() {
+        return learnts.size();
+    }
+
+    /**
+     * Requires: 0 <= i < numClauses()
+     * @return a copy of the i-th stored problem clause
+     */
+    public int[] clause(int i) {
+        int ref = clauseRefs.data[i];
+        return Arrays.copyOfRange(mem, ref + 1, ref + 1 + (mem[ref] & SIZE_MASK));
+    }
+
+    /**
+     * Add a clause to the problem, before solve or between two calls of it;
+     * the model of the last call is then discarded.
+     * Duplicate literals are dropped and tautologies are ignored.
+     * Requires: every literal names a variable below numVars()
+     * @return false iff the problem is now known to be unsatisfiable
+     */
+    public boolean addClause(int... lits) {
+        return addClause(lits, 0, lits.length);
+    }
+
+    /**
+     * Add the clause buf[from..from+len), as addClause(int...).
+     * @return false iff the problem is now known to be unsatisfiable
+     */
+    public boolean addClause(int[] buf, int from, int len) {
+        if (!ok) return false;
+        cancelUntil(0);
+        IntVec c = addBuf;
+        c.clear();
+        for (int i = from; i < from + len; i++) {
+            int l = buf[i];
+            byte val = litValue(l);
+            if (val == TRUE) return true;
+            if (val == FALSE) continue;
+            boolean keep = true;
+            for (int k = 0; k < c.size; k++) {
+                if (c.data[k] == l) {
+                    keep = false;
+                    break;
+                }
+                if (c.data[k] == Lit.not(l)) return true;
+            }
+            if (keep) c.push(l);
+        }
+        // the clause as given is known to the proof checker, a shortened one is not
+        if (proof != null && c.size < len) proof.addClause(c.data, 0, c.size);
+        if (c.size == 0) {
+            ok = false;
+        } else if (c.size == 1) {
+            enqueue(c.data[0], NO_REASON);
+        } else {
+            clauseRefs.push(attach(c.data, c.size, 0, 0));
+            // occurrence counts are rebuilt by the next solve
+            active = null;
+        }
+        return ok;
+    }
+
+    /**
+     * Add a clause implied by the problem clauses, e.g. learned by another
+     * solver of the same problem, as a learned clause with the given LBD:
+     * it helps propagation but may be deleted later. Literals false at the
+     * top level are dropped.
+     * Requires: the solver is at the top level, i.e. not inside solve
+     *     except from ClauseSharing.importClauses; lits has no duplicate
+     *     or complementary literals
+     * @return false iff the problem is now known to be unsatisfiable
+     */
+    public boolean addLearntClause(int[] lits, int lbd) {
+        if (trailLim.size() > 0) {
+            throw new IllegalStateException("learned clauses can only be added at the top level");
+        }
+        if (!ok) return false;
+        IntVec c = addBuf;
+        c.clear();
+        for (int l : lits) {
+            byte val = litValue(l);
+            if (val == TRUE) return true;
+            if (val == FALSE) continue;
+            c.push(l);
+        }
+        if (c.size == 0) {
+            ok = false;
+        } else if (c.size == 1) {
+            enqueue(c.data[0], NO_REASON);
+        } else {
+            attachLearnt(c.data, c.size, Math.min(lbd, c.size));
+        }
+        return ok;
+    }
+
+    /**
+     * Add every clause of the arena.
+     * Requires: arena.numVars() <= numVars()
+     * @return false iff the problem is now known to be unsatisfiable
+     */
+    public boolean addClauses(ClauseArena arena) {
+        int[] lits = arena.literals();
+        for (int i = 0; i < arena.numClauses() && ok; i++) {
+            addClause(lits, arena.start(i), arena.clauseSize(i));
+        }
+        return ok;
+    }
+
+    /*
+     * Store the clause c[0..n) after extra free words, with the given header
+     * flags, and watch its first two literals.
+     * Returns the reference of the new clause.
+     */
+    private int attach(int[] c, int n, int extra, int flags) {
+        int words = extra + 1 + n;
+        if (memSize + words > mem.length) {
+            mem = Arrays.copyOf(mem, Math.max(memSize + words, mem.length << 1));
+        }
+        int ref = memSize + extra;
+        mem[ref] = n | flags;
+        System.arraycopy(c, 0, mem, ref + 1, n);
+        memSize += words;
+        watches[c[0]].push(ref);
+        watches[c[1]].push(ref);
+        if (heuristicReady) heuristic.clauseAdded(mem, ref + 1, n);
+        return ref;
+    }
+
+    /*
+     * Store c[0..n) as a learned clause with the given LBD.
+     * Returns the reference of the new clause.
+     */
+    private int attachLearnt(int[] c, int n, int lbd) {
+        int ref = attach(c, n, 2, LEARNT);
+        mem[ref - 2] = lbd;
+        mem[ref - 1] = Float.floatToRawIntBits(clauseInc);
+        learnts.push(ref);
+        return ref;
+    }
+
+    /**
+     * Propagate the unit clauses added so far at the top level.
+     * Requires: the solver is at the top level
+     * @return false iff the problem is now known to be unsatisfiable
+     */
+    public boolean propagateUnits() {
+        if (ok && propagate() != NO_CONFLICT) {
+            ok = false;
+        }
+        return ok;
+    }
+
+    /**
+     * Look ahead on lit: assign it at a new decision level, propagate it
+     * and undo both, leaving the assignment as it was.
+     * Requires: lit is unassigned and every assignment has been
+     *     propagated, e.g. by propagateUnits
+     * @return the number of literals assigned by the lookahead, lit
+     * included, or -1 if it falsified a clause
+     */
+    public int lookahead(int lit) {
+        int start = trailSize;
+        trailLim.push(trailSize);
+        enqueue(lit, NO_REASON);
+        boolean conflict = propagate() != NO_CONFLICT;
+        int assigned = trailSize - start;
+        cancelUntil(trailLim.size() - 1);
+        return conflict ? -1 : assigned;
+    }
+
+    /**
+     * @return number of variables assigned under the current assignment
+     */
+    public int numAssigned() {
+        return trailSize;
+    }
+
+    /**
+     * Search for a satisfying assignment in which the given assumption
+     * literals are true. Assumptions hold for this call only; they are
+     * decided, in order, before any other literal, so everything learned
+     * under them remains valid for later calls.
+     * Requires: every assumption names a variable below numVars()
+     * @return true iff the clauses and assumptions are satisfiable; if so,
+     * value(v) gives a model on which every clause evaluates to true. If
+     * false, failedAssumptions tells which assumptions were used.
+     * @throws CancellationException if interrupt was called before an
+     * answer was found; the solver is then back at the top level
+     */
+    public boolean solve(int... assumptions) {
+        cancelUntil(0);
+        core.clear();
+        this.assumptions = assumptions;
+        if (!ok) return false;
+        if (propagate() != NO_CONFLICT) {
+            if (proof != null) proof.addClause(new int[0], 0, 0);
+            ok = false;
+            return false;
+        }
+        if (!heuristicReady) {
+            heuristic.init(this);
+            heuristicReady = true;
+        }
+        if (active == null && (pureLiterals || heuristic.usesActiveCounts())) {
+            initActiveCounts();
+        }
+        boolean sat = mode == Mode.CDCL ? searchCdcl() : search();
+        if (!sat) cancelUntil(0);
+        return sat;
+    }
+
+    /**
+     * @return the failed assumptions of the last call of solve, if it
+     * returned false: assumptions of that call that cannot all be true
+     * together with the clauses. Empty if the clauses alone are
+     * unsatisfiable. In DPLL mode, which does not keep the reasons of its
+     * backtracking, a refutation found by search gives every assumption.
+     */
+    public int[] failedAssumptions() {
+        return core.toArray();
+    }
+
+    /*
+     * Chronological backtracking over the trail: after a conflict, undo
+     * up to the most recent decision whose other phase is untried and
+     * assert that phase as a new decision. Decisions come from the
+     * branching heuristic, which is bumped with the variables of each
+     * falsified clause. Uses constant stack depth.
+     */
+    private boolean search() {
+        // flipped.get(d) != 0 iff the decision opening level d+1 is already its second phase
+        IntVec flipped = new IntVec();
+        while (true) {
+            checkInterrupt();
+            int conflict = propagate();
+            if (conflict != NO_CONFLICT) {
+                conflicts++;
+                for (int k = conflict + 1; k <= conflict + (mem[conflict] & SIZE_MASK); k++) {
+                    heuristic.bump(Lit.var(mem[k]));
+                }
+                heuristic.conflict();
+                int lvl = trailLim.size();
+                if (proof != null) logDecisions(lvl);
+                while (lvl > 0 && flipped.get(lvl - 1) != 0) {
+                    lvl--;
+                    // both phases of the decision of level lvl+1 are refuted
+                    if (proof != null && lvl >= assumptions.length) logDecisions(lvl);
+                }
+                if (lvl == 0) {
+                    if (trailLim.size() > 0) {
+                        for (int p : assumptions) {
+                            core.push(p);
+                        }
+                    }
+                    return false;
+                }
+                int decision = trail[trailLim.get(lvl - 1)];
+                cancelUntil(lvl - 1);
+                flipped.shrink(lvl - 1);
+                trailLim.push(trailSize);
+                flipped.push(1);
+                enqueue(Lit.not(decision), NO_REASON);
+            } else {
+                boolean holds = assumeTrue();
+                // neither assumptions nor pure literals are worth trying in their other phase
+                while (flipped.size() < trailLim.size()) {
+                    flipped.push(1);
+                }
+                if (!holds) return false;
+                int decision = nextAssumption();
+                boolean fixed = decision != Lit.UNDEF;
+                if (!fixed && proof == null) {
+                    decision = nextPureLiteral();
+                    fixed = decision != Lit.UNDEF;
+                }
+                if (!fixed) {
+                    decision = heuristic.pickBranchLit();
+                    if (decision == Lit.UNDEF) return true;
+                    decisions++;
+                }
+                trailLim.push(trailSize);
+                flipped.push(fixed ? 1 : 0);
+                enqueue(decision, NO_REASON);
+            }
+        }
+    }
+
+    /*
+     * Conflict-driven clause learning: on each conflict, learn the first-UIP
+     * clause, backjump to the second highest level in it and let the learned
+     * clause propagate its asserting literal. Before a decision, restart to
+     * level 0 if the restart policy says so, and periodically reduce the
+     * learned clauses.
+     */
+    private boolean searchCdcl() {
+        IntVec learnt = new IntVec();
+        while (true) {
+            checkInterrupt();
+            int conflict = propagate();
+            if (conflict != NO_CONFLICT) {
+                conflicts++;
+                if (trailLim.size() == 0) {
+                    if (proof != null) proof.addClause(new int[0], 0, 0);
+                    ok = false;
+                    return false;
+                }
+                int backLevel = analyze(conflict, learnt);
+                int lbd = lbd(learnt.data, 0, learnt.size);
+                heuristic.conflict();
+                restartPolicy.conflict(lbd);
+                clauseInc /= CLAUSE_DECAY;
+                if (sharing != null) sharing.exportClause(learnt.data, learnt.size, lbd);
+                if (proof != null) proof.addClause(learnt.data, 0, learnt.size);
+                cancelUntil(backLevel);
+                if (learnt.size() == 1) {
+                    enqueue(learnt.get(0), NO_REASON);
+                } else {
+                    enqueue(learnt.get(0), attachLearnt(learnt.data, learnt.size, lbd));
+                }
+            } else if (restartPolicy.shouldRestart() && trailLim.size() > 0) {
+                restarts++;
+                restartPolicy.restarted();
+                cancelUntil(0);
+                if (sharing != null) {
+                    sharing.importClauses(this);
+                    if (!ok) return false;
+                }
+            } else if (conflicts >= nextReduce) {
+                reductions++;
+                nextReduce = conflicts + FIRST_REDUCE + REDUCE_INC * reductions;
+                reduceLearnts();
+            } else {
+                if (!assumeTrue()) return false;
+                int decision = nextAssumption();
+                if (decision == Lit.UNDEF) decision = nextPureLiteral();
+                if (decision == Lit.UNDEF) {
+                    decision = heuristic.pickBranchLit();
+                    if (decision == Lit.UNDEF) return true;
+                    decisions++;
+                }
+                trailLim.push(trailSize);
+                enqueue(decision, NO_REASON);
+            }
+        }
+    }
+
+    /*
+     * Open an empty decision level for each next assumption that is
+     * already true, so that level i+1 always belongs to assumptions[i].
+     * Returns false, with the failed assumptions in core, if the next
+     * assumption is false.
+     */
+    private boolean assumeTrue() {
+        while (trailLim.size() < assumptions.length) {
+            int p = assumptions[trailLim.size()];
+            byte val = litValue(p);
+            if (val == UNDEF) return true;
+            if (val == FALSE) {
+                analyzeFinal(p);
+                return false;
+            }
+            trailLim.push(trailSize);
+        }
+        return true;
+    }
+
+    /*
+     * Returns the next assumption to decide, or Lit.UNDEF if all are
+     * decided. Requires: assumeTrue() returned true
+     */
+    private int nextAssumption() {
+        return trailLim.size() < assumptions.length ? assumptions[trailLim.size()] : Lit.UNDEF;
+    }
+
+    /*
+     * Set core to the false assumption p and the assumptions whose
+     * propagation falsified it, found by following the reasons of ~p back
+     * to decisions, all of which are assumptions at this point.
+     */
+    private void analyzeFinal(int p) {
+        core.clear();
+        core.push(p);
+        if (level[Lit.var(p)] == 0) return;
+        seen[Lit.var(p)] = true;
+        for (int i = trailSize - 1; i >= trailLim.get(0); i--) {
+            int v = Lit.var(trail[i]);
+            if (!seen[v]) continue;
+            seen[v] = false;
+            int r = reason[v];
+            if (r == NO_REASON) {
+                core.push(trail[i]);
+                continue;
+            }
+            // the first literal of a reason clause is the one it implied
+            int end = r + 1 + (mem[r] & SIZE_MASK);
+            for (int k = r + 2; k < end; k++) {
+                int w = Lit.var(mem[k]);
+                if (level[w] > 0) seen[w] = true;
+            }
+        }
+    }
+
+    /*
+     * Log the clause of the negations of the decisions of levels 1..lvl,
+     * the assumption of each assumption level included. It follows by
+     * propagation after a conflict at level lvl, or once both phases of
+     * the decision of level lvl+1 have been refuted.
+     */
+    private void logDecisions(int lvl) {
+        IntVec c = proofBuf;
+        c.clear();
+        for (int d = 0; d < lvl; d++) {
+            c.push(Lit.not(d < assumptions.length ? assumptions[d] : trail[trailLim.get(d)]));
+        }
+        proof.addClause(c.data, 0, c.size);
+    }
+
+    /*
+     * Leave the search if interrupt was called.
+     */
+    private void checkInterrupt() {
+        if (interrupted) {
+            cancelUntil(0);
+            throw new CancellationException("solver interrupted");
+        }
+    }
+
+    /*
+     * Walk the implication graph back from the falsified clause until a
+     * single literal of the current decision level remains (the first unique
+     * implication point). Fills out with the learned clause: out[0] is the
+     * negated UIP and, if there are other literals, out[1] is one of the
+     * highest level among them.
+     * Requires: conflict is falsified and the decision level is above 0
+     * Returns the level to backjump to.
+     */
+    private int analyze(int conflict, IntVec out) {
+        out.clear();
+        out.push(Lit.UNDEF);
+        int currentLevel = trailLim.size();
+        int pending = 0;
+        int p = Lit.UNDEF;
+        int index = trailSize - 1;
+        do {
+            int header = mem[conflict];
+            int end = conflict + 1 + (header & SIZE_MASK);
+            if ((header & LEARNT) != 0) {
+                bumpClause(conflict);
+                // the clause may have become more useful since it was learned
+                int lbd = lbd(mem, conflict + 1, header & SIZE_MASK);
+                if (lbd < mem[conflict - 2]) mem[conflict - 2] = lbd;
+            }
+            // the first literal of a reason clause is the one it implied
+            for (int k = conflict + (p == Lit.UNDEF ? 1 : 2); k < end; k++) {
+                int q = mem[k];
+                int v = Lit.var(q);
+                if (!seen[v] && level[v] > 0) {
+                    seen[v] = true;
+                    heuristic.bump(v);
+                    if (level[v] >= currentLevel) {
+                        pending++;
+                    } else {
+                        out.push(q);
+                    }
+                }
+            }
+            // next literal of the current level to expand, in reverse trail order
+            while (!seen[Lit.var(trail[index])]) {
+                index--;
+            }
+            p = trail[index--];
+            conflict = reason[Lit.var(p)];
+            seen[Lit.var(p)] = false;
+            pending--;
+        } while (pending > 0);
+        out.set(0, Lit.not(p));
+
+        int backLevel = 0;
+        if (out.size() > 1) {
+            int max = 1;
+            for (int k = 2; k < out.size(); k++) {
+                if (level[Lit.var(out.get(k))] > level[Lit.var(out.get(max))]) {
+                    max = k;
+                }
+            }
+            int tmp = out.get(1);
+            out.set(1, out.get(max));
+            out.set(max, tmp);
+            backLevel = level[Lit.var(out.get(1))];
+        }
+        for (int k = 1; k < out.size(); k++) {
+            seen[Lit.var(out.get(k))] = false;
+        }
+        return backLevel;
+    }
+
+    /*
+     * Add clauseInc to the activity of learned clause ref, rescaling every
+     * activity when they grow too large for a float.
+     */
+    private void bumpClause(int ref) {
+        float act = Float.intBitsToFloat(mem[ref - 1]) + clauseInc;
+        mem[ref - 1] = Float.floatToRawIntBits(act);
+        if (act > 1e20f) {
+            for (int i = 0; i < learnts.size; i++) {
+                int r = learnts.data[i];
+                mem[r - 1] = Float.floatToRawIntBits(Float.intBitsToFloat(mem[r - 1]) * 1e-20f);
+            }
+            clauseInc *= 1e-20f;
+        }
+    }
+
+    /*
+     * Delete about half of the learned clauses, those with the highest LBD
+     * and, among equal LBDs, the lowest activity. Glue clauses and the
+     * reasons of current assignments are kept. The arena is compacted once
+     * deleted clauses take a quarter of it.
+     */
+    private void reduceLearnts() {
+        int[] m = mem;
+        Integer[] order = new Integer[learnts.size];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = learnts.data[i];
+        }
+        Arrays.sort(order, (a, b) -> m[a - 2] != m[b - 2]
+                ? Integer.compare(m[b - 2], m[a - 2])
+                : Float.compare(Float.intBitsToFloat(m[a - 1]), Float.intBitsToFloat(m[b - 1])));
+        learnts.clear();
+        for (int i = 0; i < order.length; i++) {
+            int ref = order[i];
+            if (i < order.length / 2 && m[ref - 2] > GLUE_LBD && !locked(ref)) {
+                int n = m[ref] & SIZE_MASK;
+                if (heuristicReady) heuristic.clauseRemoved(m, ref + 1, n);
+                if (proof != null) proof.deleteClause(m, ref + 1, n);
+                m[ref] |= DELETED;
+                wasted += n + 3;
+                deletedClauses++;
+            } else {
+                learnts.push(ref);
+            }
+        }
+        for (IntVec ws : watches) {
+            int j = 0;
+            for (int i = 0; i < ws.size; i++) {
+                if ((m[ws.data[i]] & DELETED) == 0) ws.data[j++] = ws.data[i];
+            }
+            ws.shrink(j);
+        }
+        if (wasted > memSize / 4) compact();
+    }
+
+    /*
+     * True iff clause ref is the reason of its first literal's current assignment.
+     */
+    private boolean locked(int ref) {
+        int first = mem[ref + 1];
+        return litValue(first) == TRUE && reason[Lit.var(first)] == ref;
+    }
+
+    /*
+     * Copy the live clauses into a fresh arena without the deleted ones
+     * and update every reference to them.
+     */
+    private void compact() {
+        int[] old = mem;
+        int[] to = new int[Math.max(1024, memSize - wasted)];
+        // after a clause is moved, its old header holds its new reference
+        int top = move(old, clauseRefs, 0, to, 0);
+        top = move(old, learnts, 2, to, top);
+        for (IntVec ws : watches) {
+            for (int i = 0; i < ws.size; i++) {
+                ws.data[i] = old[ws.data[i]];
+            }
+        }
+        for (int i = 0; i < trailSize; i++) {
+            int v = Lit.var(trail[i]);
+            if (reason[v] != NO_REASON) reason[v] = old[reason[v]];
+        }
+        mem = to;
+        memSize = top;
+        wasted = 0;
+    }
+
+    /*
+     * Move the clauses listed in refs, each with extra words in front,
+     * from old to to[top..]; refs is updated and old[ref] set to the new
+     * reference of each. Returns the first free index of to.
+     */
+    private static int move(int[] old, IntVec refs, int extra, int[] to, int top) {
+        for (int i = 0; i < refs.size; i++) {
+            int ref = refs.data[i];
+            int words = extra + 1 + (old[ref] & SIZE_MASK);
+            int moved = top + extra;
+            System.arraycopy(old, ref - extra, to, top, words);
+            refs.data[i] = moved;
+            old[ref] = moved;
+            top += words;
+        }
+        return top;
+    }
+
+    /*
+     * Build the occurrence lists and active counts of the problem clauses
+     * under the current assignment. Every variable counts as raised.
+     */
+    private void initActiveCounts() {
+        occurs = new IntVec[2 * numVars];
+        for (int l = 0; l < occurs.length; l++) {
+            occurs[l] = new IntVec();
+        }
+        active = new int[2 * numVars];
+        trueCount = new int[clauseRefs.size];
+        candidate = new boolean[2 * numVars];
+        pureCandidates.clear();
+        raised = heuristic.usesActiveCounts() ? new boolean[numVars] : null;
+        raisedVars.clear();
+        for (int i = 0; i < clauseRefs.size; i++) {
+            int ref = clauseRefs.data[i];
+            int end = ref + 1 + (mem[ref] & SIZE_MASK);
+            for (int k = ref + 1; k < end; k++) {
+                occurs[mem[k]].push(i);
+                if (litValue(mem[k]) == TRUE) trueCount[i]++;
+            }
+            if (trueCount[i] == 0) {
+                for (int k = ref + 1; k < end; k++) {
+                    active[mem[k]]++;
+                }
+            }
+        }
+        for (int l = 0; l < active.length; l++) {
+            if (active[Lit.not(l)] == 0) offerPure(l);
+        }
+        if (raised != null) {
+            for (int v = numVars - 1; v >= 0; v--) {
+                raised[v] = true;
+                raisedVars.push(v);
+            }
+        }
+    }
+
+    /**
+     * Requires: solve has started with a heuristic whose usesActiveCounts
+     *     is true, or with pure literals enabled
+     * @return number of problem clauses that contain l and no true literal
+     */
+    int activeCount(int l) {
+        return active[l];
+    }
+
+    /**
+     * Requires: solve has started with a heuristic whose usesActiveCounts
+     *     is true
+     * @return a variable whose literals' active counts may have risen since
+     * it was last returned, or -1 if there is none; every variable is
+     * returned once after the counts are (re)built
+     */
+    int nextRaised() {
+        if (raisedVars.isEmpty()) return -1;
+        int v = raisedVars.pop();
+        raised[v] = false;
+        return v;
+    }
+
+    /*
+     * Make l a candidate for pure-literal assignment.
+     */
+    private void offerPure(int l) {
+        if (pureLiterals && !candidate[l]) {
+            candidate[l] = true;
+            pureCandidates.push(l);
+        }
+    }
+
+    /*
+     * Returns an unassigned literal that is pure in the problem clauses not
+     * yet satisfied, or Lit.UNDEF if there is none among the candidates.
+     */
+    private int nextPureLiteral() {
+        if (active == null || !pureLiterals) return Lit.UNDEF;
+        while (!pureCandidates.isEmpty()) {
+            int l = pureCandidates.pop();
+            candidate[l] = false;
+            if (litValue(l) == UNDEF && active[Lit.not(l)] == 0 && active[l] > 0) {
+                pureAssignments++;
+                return l;
+            }
+        }
+        return Lit.UNDEF;
+    }
+
+    /*
+     * Update the pure-literal counters after l became true.
+     */
+    private void satisfy(int l) {
+        IntVec occ = occurs[l];
+        for (int j = 0; j < occ.size; j++) {
+            int i = occ.data[j];
+            if (trueCount[i]++ == 0) {
+                int ref = clauseRefs.data[i];
+                int end = ref + 1 + (mem[ref] & SIZE_MASK);
+                for (int k = ref + 1; k < end; k++) {
+                    if (--active[mem[k]] == 0) offerPure(Lit.not(mem[k]));
+                }
+            }
+        }
+    }
+
+    /*
+     * Update the pure-literal counters after l became unassigned. A literal
+     * of its variable that is pure may have been dropped from the
+     * candidates while assigned, so it is offered again.
+     */
+    private void unsatisfy(int l) {
+        IntVec occ = occurs[l];
+        for (int j = 0; j < occ.size; j++) {
+            int i = occ.data[j];
+            if (--trueCount[i] == 0) {
+                int ref = clauseRefs.data[i];
+                int end = ref + 1 + (mem[ref] & SIZE_MASK);
+                for (int k = ref + 1; k < end; k++) {
+                    active[mem[k]]++;
+                    int v = Lit.var(mem[k]);
+                    if (raised != null && !raised[v]) {
+                        raised[v] = true;
+                        raisedVars.push(v);
+                    }
+                }
+            }
+        }
+        if (active[Lit.not(l)] == 0) offerPure(l);
+        if (active[l] == 0) offerPure(Lit.not(l));
+    }
+
+    /*
+     * Literal block distance: the number of distinct decision levels among
+     * the literals lits[from..from+len), all of which must be assigned.
+     */
+    int lbd(int[] lits, int from, int len) {
+        stamp++;
+        int count = 0;
+        for (int k = from; k < from + len; k++) {
+            int d = level[Lit.var(lits[k])];
+            if (levelStamp[d] != stamp) {
+                levelStamp[d] = stamp;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Propagate all enqueued assignments using the watch lists.
+     * @return reference of a falsified clause, or NO_CONFLICT
+     */
+    int propagate() {
+        int conflict = NO_CONFLICT;
+        int[] m = mem;
+        while (qhead < trailSize) {
+            propagations++;
+            int falseLit = Lit.not(trail[qhead++]);
+            IntVec ws = watches[falseLit];
+            int[] w = ws.data;
+            int n = ws.size;
+            int i = 0;
+            int j = 0;
+            while (i < n) {
+                int ref = w[i++];
+                int c0 = ref + 1;
+                // make sure the false literal is the second one
+                if (m[c0] == falseLit) {
+                    m[c0] = m[c0 + 1];
+                    m[c0 + 1] = falseLit;
+                }
+                int first = m[c0];
+                if (litValue(first) == TRUE) {
+                    w[j++] = ref;
+                    continue;
+                }
+                // look for a new literal to watch
+                boolean moved = false;
+                int end = c0 + (m[ref] & SIZE_MASK);
+                for (int k = c0 + 2; k < end; k++) {
+                    if (litValue(m[k]) != FALSE) {
+                        m[c0 + 1] = m[k];
+                        m[k] = falseLit;
+                        watches[m[c0 + 1]].push(ref);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+                // clause is unit or falsified under the current assignment
+                w[j++] = ref;
+                if (litValue(first) == FALSE) {
+                    conflict = ref;
+                    qhead = trailSize;
+                    while (i < n) {
+                        w[j++] = w[i++];
+                    }
+                } else {
+                    enqueue(first, ref);
+                }
+            }
+            ws.size = j;
+        }
+        return conflict;
+    }
+
+    /*
+     * Make l true with the given reason clause at the current decision level.
+     * Requires: l is unassigned
+     */
+    void enqueue(int l, int from) {
+        int v = Lit.var(l);
+        assigns[v] = Lit.isNeg(l) ? FALSE : TRUE;
+        level[v] = trailLim.size();
+        reason[v] = from;
+        trail[trailSize++] = l;
+        if (active != null) satisfy(l);
+    }
+
+    /*
+     * Undo all assignments made above decision level lvl.
+     */
+    void cancelUntil(int lvl) {
+        if (trailLim.size() <= lvl) return;
+        int start = trailLim.get(lvl);
+        for (int i = trailSize - 1; i >= start; i--) {
+            assigns[Lit.var(trail[i])] = UNDEF;
+            // before solve, the heuristic does not yet track the assignment
+            if (heuristicReady) heuristic.unassigned(trail[i]);
+            if (active != null) unsatisfy(trail[i]);
+        }
+        trailSize = start;
+        qhead = start;
+        trailLim.shrink(lvl);
+    }
+
+    /**
+     * @return the value of literal l under the current assignment
+     */
+    public byte litValue(int l) {
+        byte val = assigns[Lit.var(l)];
+        return Lit.isNeg(l) ? (byte) -val : val;
+    }
+
+    /**
+     * @return the value of variable v under the current assignment
+     * (after a successful solve, the model)
+     */
+    public byte value(int v) {
+        return assigns[v];
+    }
+}
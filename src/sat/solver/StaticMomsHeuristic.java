@@ -0,0 +1,49 @@
+package sat.solver;
+
+/**
+ * A static form of Maximum Occurrences in clauses of Minimum Size. Only
+ * stored clauses no longer than the shortest problem clause at init are
+ * counted, and a variable with f and g occurrences of its two literals
+ * scores (f + g) * 2^k + f * g, which favours variables that occur often
+ * and in both polarities.
+ *
+ * True MOMS counts occurrences in the shortest clauses not yet satisfied,
+ * as reduced by the current assignment, which change with every
+ * assignment; fixing the size when the search starts keeps the counts
+ * incremental (see OccurrenceHeuristic).
+ */
+public class StaticMomsHeuristic extends OccurrenceHeuristic {
+    private final int k;
+    // size of the shortest problem clause at init
+    private int minSize;
+
+    /**
+     * Create a MOMS heuristic with k = 4.
+     */
+    public StaticMomsHeuristic() {
+        this(4);
+    }
+
+    /**
+     * Requires: k >= 0
+     */
+    public StaticMomsHeuristic(int k) {
+        this.k = k;
+    }
+
+    public void init(Solver solver) {
+        minSize = Integer.MAX_VALUE;
+        for (int i = 0; i < solver.numClauses(); i++) {
+            minSize = Math.min(minSize, solver.clause(i).length);
+        }
+        super.init(solver);
+    }
+
+    protected double weight(int size) {
+        return size <= minSize ? 1 : 0;
+    }
+
+    protected double combine(double pos, double neg) {
+        return Math.scalb(pos + neg, k) + pos * neg;
+    }
+}
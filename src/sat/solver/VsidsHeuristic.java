@@ -0,0 +1,129 @@
+package sat.solver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Variable State Independent Decaying Sum branching, in the exponential
+ * form used by MiniSat (EVSIDS): every variable involved in a conflict has
+ * its activity raised by an increment that grows geometrically after each
+ * conflict, which has the effect of decaying all older bumps. The most
+ * active unassigned variable is found through an indexed heap rather than
+ * by scanning.
+ *
+ * With phase saving, a variable is decided in the polarity it last had;
+ * variables never assigned are tried in the initial polarity, positive by
+ * default. Initial activities are zero unless a random source is given,
+ * in which case they get small random values that only break ties; this
+ * lets several solvers explore the same problem differently.
+ */
+public class VsidsHeuristic implements BranchingHeuristic {
+    private static final double RESCALE_LIMIT = 1e100;
+
+    private final double decay;
+    private final boolean phaseSaving;
+    private final boolean negativeFirst;
+    private final Random random;
+    private double increment = 1;
+
+    private Solver solver;
+    private double[] activity;
+    // savedNeg[v] iff the next decision on v should be the negative literal
+    private boolean[] savedNeg;
+    private IndexedHeap order;
+
+    /*
+     * Rep invariant (after init):
+     *     every unassigned variable is in order
+     *     0 < decay < 1, increment > 0
+     */
+
+    /**
+     * Create a VSIDS heuristic with decay 0.95 and phase saving.
+     */
+    public VsidsHeuristic() {
+        this(0.95, true);
+    }
+
+    /**
+     * Requires: 0 < decay < 1
+     */
+    public VsidsHeuristic(double decay, boolean phaseSaving) {
+        this(decay, phaseSaving, false, null);
+    }
+
+    /**
+     * Create a VSIDS heuristic that tries unassigned variables negative
+     * first iff negativeFirst, and draws initial activities from random
+     * unless it is null.
+     * Requires: 0 < decay < 1
+     */
+    public VsidsHeuristic(double decay, boolean phaseSaving, boolean negativeFirst, Random random) {
+        this.decay = decay;
+        this.phaseSaving = phaseSaving;
+        this.negativeFirst = negativeFirst;
+        this.random = random;
+    }
+
+    public void init(Solver solver) {
+        this.solver = solver;
+        int n = solver.numVars();
+        activity = new double[n];
+        savedNeg = new boolean[n];
+        order = new IndexedHeap(n, activity);
+        for (int v = 0; v < n; v++) {
+            savedNeg[v] = negativeFirst;
+            // far below any bump, so only ties among unbumped variables are affected
+            if (random != null) activity[v] = random.nextDouble() * 1e-5;
+            order.insert(v);
+        }
+    }
+
+    /**
+     * Keep the activities and saved phases of the old variables; the new
+     * ones start as in init.
+     */
+    public void varsAdded(Solver solver) {
+        int old = activity.length;
+        int n = solver.numVars();
+        activity = Arrays.copyOf(activity, n);
+        savedNeg = Arrays.copyOf(savedNeg, n);
+        order.grow(n, activity);
+        for (int v = old; v < n; v++) {
+            savedNeg[v] = negativeFirst;
+            if (random != null) activity[v] = random.nextDouble() * 1e-5;
+            order.insert(v);
+        }
+    }
+
+    public int pickBranchLit() {
+        while (!order.isEmpty()) {
+            int v = order.removeMax();
+            if (solver.value(v) == Solver.UNDEF) {
+                return Lit.make(v, savedNeg[v]);
+            }
+        }
+        return Lit.UNDEF;
+    }
+
+    public void unassigned(int l) {
+        int v = Lit.var(l);
+        if (phaseSaving) savedNeg[v] = Lit.isNeg(l);
+        if (!order.contains(v)) order.insert(v);
+    }
+
+    public void bump(int v) {
+        activity[v] += increment;
+        if (activity[v] > RESCALE_LIMIT) {
+            for (int w = 0; w < activity.length; w++) {
+                activity[w] /= RESCALE_LIMIT;
+            }
+            increment /= RESCALE_LIMIT;
+        }
+        order.increased(v);
+    }
+
+    public void conflict() {
+        increment /= decay;
+    }
+}